@@ -0,0 +1,51 @@
+package AI.hex;
+
+/**
+ * Bitboard helpers for Hex. Cell {@code a = row * n + col} is bit {@code a & 63}
+ * of word {@code a >>> 6}; any board size works, an 11x11 board needs two words.
+ */
+final class HexBits {
+    private HexBits() {}
+
+    static int words(int n) {
+        return (n * n + 63) >>> 6;
+    }
+
+    static boolean get(long[] bits, int a) {
+        return (bits[a >>> 6] & (1L << a)) != 0;
+    }
+
+    static void set(long[] bits, int a) {
+        bits[a >>> 6] |= 1L << a;
+    }
+
+    /** Copy of {@code bits} with cell {@code a} set. */
+    static long[] with(long[] bits, int a) {
+        long[] next = bits.clone();
+        next[a >>> 6] |= 1L << a;
+        return next;
+    }
+
+    static long[] fromCells(int[] cells, int v, int words) {
+        long[] bits = new long[words];
+        for (int a = 0; a < cells.length; a++) {
+            if (cells[a] == v) set(bits, a);
+        }
+        return bits;
+    }
+
+    /** Bits of word {@code w} that are on the board (the last word is partial). */
+    static long boardWord(int n, int w) {
+        int cells = n * n - (w << 6);
+        return cells >= 64 ? -1L : (1L << cells) - 1;
+    }
+
+    /** Number of cells occupied in neither bitset. */
+    static int countEmpty(int n, long[] own, long[] opp) {
+        int count = 0;
+        for (int w = 0; w < own.length; w++) {
+            count += Long.bitCount(~(own[w] | opp[w]) & boardWord(n, w));
+        }
+        return count;
+    }
+}
@@ -0,0 +1,85 @@
+package AI.hex;
+
+import java.util.Arrays;
+
+import Game.Board;
+import Game.UnionFind;
+
+/**
+ * Union-find helpers for Hex connectivity on a flat {@code int[]}, using the
+ * array-level operations of {@link UnionFind}.
+ *
+ * <p>Layout: one slot per cell plus four virtual edge nodes (red top, red bottom,
+ * black left, black right). As in {@link UnionFind}, a negative entry marks a root
+ * and stores minus the size of its set, any other entry is the parent index. The edges are
+ * colour-absolute, so the same array is valid for both perspectives of a state.
+ */
+final class HexConnectivity {
+    private HexConnectivity() {}
+
+    static int redTop(int n)      { return n * n; }
+    static int redBottom(int n)   { return n * n + 1; }
+    static int blackLeft(int n)   { return n * n + 2; }
+    static int blackRight(int n)  { return n * n + 3; }
+
+    /** Fresh structure with every cell and edge in its own set. */
+    static int[] create(int n) {
+        int[] links = new int[n * n + 4];
+        Arrays.fill(links, -1);
+        return links;
+    }
+
+    /**
+     * Fills {@code links} from scratch for the stones in {@code own} (+1) and
+     * {@code opp} (-1).
+     *
+     * @return the side (+1 or -1) that connects its edges, 0 if none does
+     */
+    static int build(int[] links, int n, long[] own, long[] opp, boolean plusIsRed) {
+        Arrays.fill(links, -1);
+        int won = 0;
+        for (int a = 0; a < n * n; a++) {
+            if (HexBits.get(own, a)) {
+                if (place(links, n, own, a, plusIsRed)) won = +1;
+            } else if (HexBits.get(opp, a)) {
+                if (place(links, n, opp, a, !plusIsRed)) won = -1;
+            }
+        }
+        return won;
+    }
+
+    /**
+     * Six neighbour indices per cell ({@code -1} when off the board), shared by all
+     * boards of size {@code n}.
+     */
+    static int[] neighbours(int n) {
+        return Board.neighbours(n);
+    }
+
+    /**
+     * Links the stone just placed at {@code action} with its neighbours in
+     * {@code mine} (the bitboard of its colour, already including it) and with its
+     * colour's edges.
+     *
+     * @return {@code true} if this stone's colour now connects its two edges
+     */
+    static boolean place(int[] links, int n, long[] mine, int action, boolean red) {
+        int[] nb = neighbours(n);
+        int base = action * 6;
+        for (int k = 0; k < 6; k++) {
+            int m = nb[base + k];
+            if (m >= 0 && HexBits.get(mine, m)) {
+                UnionFind.union(links, action, m);
+            }
+        }
+        int r = action / n, c = action % n;
+        if (red) {
+            if (r == 0)     UnionFind.union(links, action, redTop(n));
+            if (r == n - 1) UnionFind.union(links, action, redBottom(n));
+            return UnionFind.find(links, redTop(n)) == UnionFind.find(links, redBottom(n));
+        }
+        if (c == 0)     UnionFind.union(links, action, blackLeft(n));
+        if (c == n - 1) UnionFind.union(links, action, blackRight(n));
+        return UnionFind.find(links, blackLeft(n)) == UnionFind.find(links, blackRight(n));
+    }
+}
@@ -3,16 +3,57 @@ package AI.hex;
 
 import java.util.concurrent.ThreadLocalRandom;
 
+import AI.mcts.FastRollout;
 import AI.mcts.MctsGame;
 import AI.mcts.Outcome;
-import Game.Board;
-import Game.Color;
+import AI.mcts.RolloutTrace;
+
+public final class HexMctsAdapter implements MctsGame<HexState>, FastRollout<HexState> {
+    private static final Outcome ONGOING = new Outcome(0.0, false);
+    private static final Outcome CURRENT_WINS = new Outcome(+1.0, true);
+    private static final Outcome CURRENT_LOSES = new Outcome(-1.0, true);
+
+    /** How {@link #rollout(HexState)} plays out a position. */
+    public enum RolloutMode {
+        /** Random moves one at a time with a win check after each stone. */
+        PLY_BY_PLY,
+        /** Fill every empty cell at once, then a single connectivity check. */
+        FILL_BOARD
+    }
+
+    /** How {@link #getNextState} finds out whether a move ended the game. */
+    public enum WinCheck {
+        /**
+         * Each state carries a union-find that is updated per move. Costs an
+         * {@code int[n*n+4]} per state on top of the bitboards.
+         */
+        UNION_FIND,
+        /**
+         * States carry only bitboards; the mover's stones are flood-filled word by word.
+         * The default: within a few percent of {@link #UNION_FIND} per move (see
+         * HexBenchmark) at a fraction of the memory per state.
+         */
+        FLOOD_FILL
+    }
 
-public final class HexMctsAdapter implements MctsGame<HexState> {
     private final int n;
+    private final RolloutMode rolloutMode;
+    private final WinCheck winCheck;
+    private final ThreadLocal<HexPlayout> playouts;
 
     public HexMctsAdapter(int n) {
+        this(n, RolloutMode.PLY_BY_PLY);
+    }
+
+    public HexMctsAdapter(int n, RolloutMode rolloutMode) {
+        this(n, rolloutMode, WinCheck.FLOOD_FILL);
+    }
+
+    public HexMctsAdapter(int n, RolloutMode rolloutMode, WinCheck winCheck) {
         this.n = n;
+        this.rolloutMode = rolloutMode;
+        this.winCheck = winCheck;
+        this.playouts = ThreadLocal.withInitial(() -> new HexPlayout(n));
     }
 
     @Override
@@ -23,8 +64,12 @@ public final class HexMctsAdapter implements MctsGame<HexState> {
     @Override
     public boolean[] getValidMoves(HexState s) {
         boolean[] valid = new boolean[n * n];
-        for (int a = 0; a < valid.length; a++) {
-            valid[a] = (s.cells[a] == 0);
+        for (int w = 0; w < s.own.length; w++) {
+            long free = ~(s.own[w] | s.opp[w]) & HexBits.boardWord(n, w);
+            while (free != 0) {
+                valid[(w << 6) + Long.numberOfTrailingZeros(free)] = true;
+                free &= free - 1;
+            }
         }
         return valid;
     }
@@ -34,16 +79,9 @@ public final class HexMctsAdapter implements MctsGame<HexState> {
         if (player != 1 && player != -1) {
             throw new IllegalArgumentException("player must be +1 or -1");
         }
-        if (s.cells[action] != 0) {
-            throw new IllegalStateException("Illegal move");
-        }
-        int[] next = s.cells.clone();
-        if (player == 1) {
-            next[action] = 1;
-        } else {
-            next[action] = -1;
-        }
-        return new HexState(s.n, next, s.plusIsRed);
+        return winCheck == WinCheck.FLOOD_FILL
+                ? s.withStoneFloodFill(action, player)
+                : s.withStone(action, player);
     }
 
     @Override
@@ -56,37 +94,43 @@ public final class HexMctsAdapter implements MctsGame<HexState> {
 
     @Override
     public Outcome valueAndTerminated(HexState s, Integer lastAction) {
-        Board b = new Board(n);
-        for (int idx = 0; idx < s.cells.length; idx++) {
-            int v = s.cells[idx];
-            if (v == 0) continue;
-            int r = idx / n, c = idx % n;
-
-            // In this state's encoding: +1 stones belong to current player.
-            // If plusIsRed, +1 => RED; else +1 => BLACK.
-            if (v == +1) {
-                if (s.plusIsRed){
-                    b.getMoveRed(r, c, Color.RED);
-                }
-                else {
-                    b.getMoveBlack(r, c, Color.BLACK);
-                }
-            } else if (s.plusIsRed) {
-                    b.getMoveBlack(r, c, Color.BLACK);
-            } else {
-                    b.getMoveRed(r, c, Color.RED);
-            }
+        // getNextState decides the winner when the stone is placed, so this is a field read.
+        // If the current player connects, return +1; otherwise -1
+        if (s.winner == 0) {
+            return ONGOING;
         }
+        return s.winner > 0 ? CURRENT_WINS : CURRENT_LOSES;
+    }
 
-        boolean red = b.redWins();
-        boolean black = b.blackWins();
-        if (!red && !black) {
-            return new Outcome(0.0, false);
-        }
+    @Override
+    public double rollout(HexState s) {
+        return rollout(s, null);
+    }
 
-        // If the current player connects, return +1; otherwise -1
-        boolean currentWins = (s.plusIsRed && red) || (!s.plusIsRed && black);
-        return new Outcome(currentWins ? +1.0 : -1.0, true);
+    @Override
+    public double rollout(HexState s, RolloutTrace trace) {
+        HexPlayout playout = playouts.get();
+        return rolloutMode == RolloutMode.FILL_BOARD ? playout.fill(s, trace) : playout.run(s, trace);
+    }
+
+    @Override
+    public long positionKey(HexState s) {
+        return s.hash;
+    }
+
+    @Override
+    public long canonicalKey(HexState s) {
+        return s.hashUnder(canonicalSymmetry(s));
+    }
+
+    /** The symmetry mapping {@code s} to its canonical form: the image with the smallest hash. */
+    public HexSymmetry canonicalSymmetry(HexState s) {
+        return HexSymmetry.canonical(s);
+    }
+
+    /** Representative of {@code s} under {@link HexSymmetry}; symmetric positions share it. */
+    public HexState canonical(HexState s) {
+        return canonicalSymmetry(s).apply(s);
     }
 
     @Override
@@ -101,16 +145,18 @@ public final class HexMctsAdapter implements MctsGame<HexState> {
 
     /** Optional helper for quick random move (used in simulator below). */
     public int randomValidAction(HexState s) {
-        boolean[] vm = getValidMoves(s);
-        int count = 0;
-        for (boolean x : vm) {
-            if (x) {
-                count++;
+        int k = ThreadLocalRandom.current().nextInt(HexBits.countEmpty(n, s.own, s.opp));
+        for (int w = 0; w < s.own.length; w++) {
+            long free = ~(s.own[w] | s.opp[w]) & HexBits.boardWord(n, w);
+            int inWord = Long.bitCount(free);
+            if (k >= inWord) {
+                k -= inWord;
+                continue;
             }
-        }
-        int k = ThreadLocalRandom.current().nextInt(count);
-        for (int a = 0; a < vm.length; a++) if (vm[a]) {
-            if (k == 0) return a; k--;
+            for (; k > 0; k--) {
+                free &= free - 1;
+            }
+            return (w << 6) + Long.numberOfTrailingZeros(free);
         }
         throw new AssertionError("unreachable");
     }
@@ -0,0 +1,106 @@
+package AI.hex;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import AI.mcts.RolloutTrace;
+import Game.BitboardConnectivity;
+
+/**
+ * Mutable scratch board for random Hex playouts. One instance per thread,
+ * reused for every rollout so that a playout allocates nothing.
+ */
+final class HexPlayout {
+    private final int n;
+    // bitboards of the side to move at the start of the playout (+1) and its opponent (-1)
+    private final long[] plus;
+    private final long[] minus;
+    private final int[] links;
+    private final int[] empty;
+    private int emptyCount;
+    // flood-fill scratch for fill-the-board playouts
+    private final long[] frontier;
+    private final long[] next;
+
+    HexPlayout(int n) {
+        this.n = n;
+        this.plus = new long[HexBits.words(n)];
+        this.minus = new long[HexBits.words(n)];
+        this.links = HexConnectivity.create(n);
+        this.empty = new int[n * n];
+        this.frontier = new long[HexBits.words(n)];
+        this.next = new long[HexBits.words(n)];
+    }
+
+    /**
+     * Random playout from {@code s}; +1 if the side to move in {@code s} wins, -1 otherwise.
+     * The moves are appended to {@code trace} unless it is null.
+     */
+    double run(HexState s, RolloutTrace trace) {
+        if (s.winner != 0) {
+            return s.winner;
+        }
+        load(s);
+        if (s.links != null) {
+            System.arraycopy(s.links, 0, links, 0, links.length);
+        } else {
+            HexConnectivity.build(links, n, plus, minus, s.plusIsRed);
+        }
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        int v = +1;
+        while (emptyCount > 0) {
+            // swap-remove a random empty cell
+            int k = rnd.nextInt(emptyCount);
+            int a = empty[k];
+            empty[k] = empty[--emptyCount];
+            if (trace != null) trace.add(a);
+            long[] mine = v > 0 ? plus : minus;
+            HexBits.set(mine, a);
+            if (HexConnectivity.place(links, n, mine, a, (v == +1) == s.plusIsRed)) {
+                return v;
+            }
+            v = -v;
+        }
+        throw new IllegalStateException("Board filled without a winner");
+    }
+
+    /**
+     * Fill-the-board playout: shuffles the empty cells, gives them alternately to the
+     * side to move and its opponent, and decides the winner with one bitboard flood fill.
+     * Hex has no draws and a filled board has exactly one winner, which is the same
+     * player who would have connected first when playing the moves one by one.
+     * {@code trace} gets every filled cell in that order.
+     */
+    double fill(HexState s, RolloutTrace trace) {
+        if (s.winner != 0) {
+            return s.winner;
+        }
+        load(s);
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        int v = +1;
+        for (int i = emptyCount - 1; i >= 0; i--) {
+            int k = rnd.nextInt(i + 1);
+            int a = empty[k];
+            empty[k] = empty[i];
+            empty[i] = a;
+            if (trace != null) trace.add(a);
+            HexBits.set(v > 0 ? plus : minus, a);
+            v = -v;
+        }
+        int red = s.plusIsRed ? +1 : -1;
+        long[] redStones = s.plusIsRed ? plus : minus;
+        return BitboardConnectivity.connectsTopBottom(n, redStones, frontier, next) ? red : -red;
+    }
+
+    private void load(HexState s) {
+        System.arraycopy(s.own, 0, plus, 0, plus.length);
+        System.arraycopy(s.opp, 0, minus, 0, minus.length);
+        emptyCount = 0;
+        for (int w = 0; w < plus.length; w++) {
+            long free = ~(plus[w] | minus[w]) & HexBits.boardWord(n, w);
+            while (free != 0) {
+                empty[emptyCount++] = (w << 6) + Long.numberOfTrailingZeros(free);
+                free &= free - 1;
+            }
+        }
+    }
+}
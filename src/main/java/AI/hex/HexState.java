@@ -1,27 +1,143 @@
 // package AI.hex;
 package AI.hex;
 
+import java.util.Arrays;
+
+import Game.BitboardConnectivity;
+import Game.Board;
+
+/**
+ * Hex position from the point of view of the player to move. Stones are kept as
+ * two bitboards: {@code own} for the player to move (+1 in the int encoding) and
+ * {@code opp} for the opponent (-1), so a perspective flip only swaps references.
+ */
 public final class HexState {
     public final int n;
-    public final int[] cells;
     public final boolean plusIsRed;
+    /** +1 or -1 if that side (in this state's encoding) has connected its edges, 0 while the game is open. */
+    public final int winner;
+    /** Zobrist hash of the stones and the side to move, updated incrementally per move and flip. */
+    public final long hash;
+    final long[] own;
+    final long[] opp;
+    // Connectivity of the stones, updated per move and shared with the flipped view (see
+    // HexConnectivity); null for states made by withStoneFloodFill.
+    final int[] links;
 
+    /** @param cells one entry per cell: +1 player to move, -1 opponent, 0 empty */
     public HexState(int n, int[] cells, boolean plusIsRed) {
         this.n = n;
-        this.cells = cells;
         this.plusIsRed = plusIsRed;
+        this.own = HexBits.fromCells(cells, +1, HexBits.words(n));
+        this.opp = HexBits.fromCells(cells, -1, HexBits.words(n));
+        this.links = HexConnectivity.create(n);
+        this.winner = HexConnectivity.build(links, n, own, opp, plusIsRed);
+        this.hash = HexZobrist.of(n).hash(own, opp, plusIsRed);
+    }
+
+    private HexState(int n, long[] own, long[] opp, boolean plusIsRed, int[] links, int winner, long hash) {
+        this.n = n;
+        this.own = own;
+        this.opp = opp;
+        this.plusIsRed = plusIsRed;
+        this.links = links;
+        this.winner = winner;
+        this.hash = hash;
+    }
+
+    /** The position on {@code board} as seen by red if {@code redToMove}, otherwise by black. */
+    public static HexState fromBoard(Board board, boolean redToMove) {
+        int[] cells = board.toCells(); // 0 empty, 1 red, 2 black
+        int mover = redToMove ? 1 : 2;
+        for (int a = 0; a < cells.length; a++) {
+            if (cells[a] != 0) {
+                cells[a] = cells[a] == mover ? +1 : -1;
+            }
+        }
+        return new HexState(board.getSize(), cells, redToMove);
+    }
+
+    /** +1, -1 or 0 for cell {@code a}, in this state's encoding. */
+    public int cell(int a) {
+        if (HexBits.get(own, a)) return +1;
+        if (HexBits.get(opp, a)) return -1;
+        return 0;
+    }
+
+    public boolean isEmpty(int a) {
+        return ((own[a >>> 6] | opp[a >>> 6]) & (1L << a)) == 0;
+    }
+
+    /** The position as one int per cell (+1, -1, 0). */
+    public int[] toCells() {
+        int[] cells = new int[n * n];
+        for (int a = 0; a < cells.length; a++) {
+            cells[a] = cell(a);
+        }
+        return cells;
+    }
+
+    /** Hash the image of this position under {@code symmetry} would have. */
+    public long hashUnder(HexSymmetry symmetry) {
+        return symmetry == HexSymmetry.IDENTITY ? hash : HexZobrist.of(n).hash(own, opp, plusIsRed, symmetry, n);
     }
 
     public HexState withMove(int action) {
-        int[] next = cells.clone();
-        if (next[action] != 0) throw new IllegalStateException("Illegal move");
-        next[action] = +1;
-        return new HexState(n, next, plusIsRed);
+        return withStone(action, +1);
+    }
+
+    /** Places a stone of value {@code v} (+1 or -1) and updates connectivity incrementally. */
+    HexState withStone(int action, int v) {
+        if (!isEmpty(action)) throw new IllegalStateException("Illegal move");
+        long[] mine = HexBits.with(v > 0 ? own : opp, action);
+        int[] nextLinks;
+        if (links != null) {
+            nextLinks = links.clone();
+        } else {
+            nextLinks = HexConnectivity.create(n);
+            HexConnectivity.build(nextLinks, n, own, opp, plusIsRed);
+        }
+        boolean connected = HexConnectivity.place(nextLinks, n, mine, action, (v == +1) == plusIsRed);
+        return next(action, v, mine, nextLinks, connected ? v : winner);
+    }
+
+    /**
+     * Places a stone without keeping a union-find: the winner is found by a bitboard
+     * flood fill of the mover's stones, the only colour that can just have connected.
+     */
+    HexState withStoneFloodFill(int action, int v) {
+        if (!isEmpty(action)) throw new IllegalStateException("Illegal move");
+        long[] mine = HexBits.with(v > 0 ? own : opp, action);
+        boolean red = (v == +1) == plusIsRed;
+        boolean connected = red
+                ? BitboardConnectivity.connectsTopBottom(n, mine)
+                : BitboardConnectivity.connectsLeftRight(n, mine);
+        return next(action, v, mine, null, connected ? v : winner);
+    }
+
+    private HexState next(int action, int v, long[] mine, int[] nextLinks, int nextWinner) {
+        long nextHash = hash ^ HexZobrist.of(n).stone(action, v, plusIsRed);
+        return v > 0
+                ? new HexState(n, mine, opp, plusIsRed, nextLinks, nextWinner, nextHash)
+                : new HexState(n, own, mine, plusIsRed, nextLinks, nextWinner, nextHash);
     }
 
     public HexState flippedPerspective() {
-        int[] next = new int[cells.length];
-        for (int i = 0; i < cells.length; i++) next[i] = -cells[i];
-        return new HexState(n, next, !plusIsRed);
+        return new HexState(n, opp, own, !plusIsRed, links, -winner, hash ^ HexZobrist.of(n).redToMove);
+    }
+
+    // Equality is by position and perspective, so a search can find a state again (tree reuse)
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof HexState)) return false;
+        HexState other = (HexState) o;
+        return hash == other.hash && n == other.n && plusIsRed == other.plusIsRed
+                && Arrays.equals(own, other.own) && Arrays.equals(opp, other.opp);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
     }
 }
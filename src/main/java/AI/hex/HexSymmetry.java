@@ -0,0 +1,68 @@
+package AI.hex;
+
+/**
+ * Symmetries of the Hex board that preserve the value of a position for the
+ * player to move. A 180° rotation keeps both players' edges. Transposing the board
+ * turns top/bottom into left/right, so it is paired with swapping who is red.
+ */
+public enum HexSymmetry {
+    IDENTITY(false, false),
+    ROTATE_180(false, true),
+    SWAP_TRANSPOSE(true, false),
+    SWAP_TRANSPOSE_ROTATE_180(true, true);
+
+    private final boolean transpose;
+    private final boolean rotate;
+
+    HexSymmetry(boolean transpose, boolean rotate) {
+        this.transpose = transpose;
+        this.rotate = rotate;
+    }
+
+    /** Whether red and black trade places (the transposing symmetries). */
+    public boolean swapsColours() {
+        return transpose;
+    }
+
+    /** Where cell {@code a} of an n×n board ends up. */
+    public int mapAction(int a, int n) {
+        if (transpose) {
+            a = (a % n) * n + a / n;
+        }
+        return rotate ? n * n - 1 - a : a;
+    }
+
+    /** Where cell {@code a} came from, i.e. the inverse of {@link #mapAction}. */
+    public int unmapAction(int a, int n) {
+        if (rotate) {
+            a = n * n - 1 - a;
+        }
+        return transpose ? (a % n) * n + a / n : a;
+    }
+
+    /**
+     * The symmetry taking {@code s} to its canonical form, the image with the smallest
+     * hash. Symmetric positions have the same canonical form.
+     */
+    public static HexSymmetry canonical(HexState s) {
+        HexSymmetry best = IDENTITY;
+        long bestHash = s.hash;
+        for (HexSymmetry symmetry : values()) {
+            long h = s.hashUnder(symmetry);
+            if (h < bestHash) {
+                bestHash = h;
+                best = symmetry;
+            }
+        }
+        return best;
+    }
+
+    public HexState apply(HexState s) {
+        int n = s.n;
+        int[] cells = new int[n * n];
+        for (int a = 0; a < cells.length; a++) {
+            cells[mapAction(a, n)] = s.cell(a);
+        }
+        return new HexState(n, cells, transpose != s.plusIsRed);
+    }
+}
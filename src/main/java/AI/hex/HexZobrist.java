@@ -0,0 +1,61 @@
+package AI.hex;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Zobrist keys for one board size: a random key per (colour, cell) and one for
+ * "red to move". A position's hash is the XOR of the keys of its stones, by
+ * absolute colour, and of the side key when red is to move.
+ */
+final class HexZobrist {
+    private static final ConcurrentHashMap<Integer, HexZobrist> BY_SIZE = new ConcurrentHashMap<>();
+
+    final int n;
+    final long[] red;
+    final long[] black;
+    final long redToMove;
+
+    private HexZobrist(int n) {
+        // fixed seed, so hashes are stable across runs (useful for caches and debugging)
+        SplittableRandom random = new SplittableRandom(0x9E3779B97F4A7C15L ^ n);
+        this.n = n;
+        red = new long[n * n];
+        black = new long[n * n];
+        for (int a = 0; a < n * n; a++) {
+            red[a] = random.nextLong();
+            black[a] = random.nextLong();
+        }
+        redToMove = random.nextLong();
+    }
+
+    static HexZobrist of(int n) {
+        return BY_SIZE.computeIfAbsent(n, HexZobrist::new);
+    }
+
+    /** Key of a stone of value {@code v} at {@code a} in a state with the given perspective. */
+    long stone(int a, int v, boolean plusIsRed) {
+        return (v == +1) == plusIsRed ? red[a] : black[a];
+    }
+
+    long hash(long[] own, long[] opp, boolean plusIsRed) {
+        return hash(own, opp, plusIsRed, HexSymmetry.IDENTITY, n);
+    }
+
+    /** Hash of the image of the position under {@code symmetry}, without building it. */
+    long hash(long[] own, long[] opp, boolean plusIsRed, HexSymmetry symmetry, int n) {
+        boolean imagePlusIsRed = symmetry.swapsColours() != plusIsRed;
+        long h = imagePlusIsRed ? redToMove : 0L;
+        long[] ownKeys = imagePlusIsRed ? red : black;
+        long[] oppKeys = imagePlusIsRed ? black : red;
+        for (int w = 0; w < own.length; w++) {
+            for (long bits = own[w]; bits != 0; bits &= bits - 1) {
+                h ^= ownKeys[symmetry.mapAction((w << 6) + Long.numberOfTrailingZeros(bits), n)];
+            }
+            for (long bits = opp[w]; bits != 0; bits &= bits - 1) {
+                h ^= oppKeys[symmetry.mapAction((w << 6) + Long.numberOfTrailingZeros(bits), n)];
+            }
+        }
+        return h;
+    }
+}
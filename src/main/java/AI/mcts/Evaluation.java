@@ -0,0 +1,17 @@
+package AI.mcts;
+
+/** Result of a {@link LeafEvaluator}: a move prior and a value for one position. */
+public final class Evaluation {
+    /**
+     * Prior weight per action, indexed like {@link MctsGame#getValidMoves}. Need not be
+     * masked or normalised; the search does both over the legal moves.
+     */
+    public final double[] policy;
+    /** Expected result in -1..1 for the player to move. */
+    public final double value;
+
+    public Evaluation(double[] policy, double value) {
+        this.policy = policy;
+        this.value = value;
+    }
+}
@@ -0,0 +1,29 @@
+package AI.mcts;
+
+/**
+ * Optional capability of an {@link MctsGame}: a self-contained random playout.
+ *
+ * <p>When the game passed to {@link MCTS} also implements this interface,
+ * {@link Node#simulate()} hands the whole playout to {@link #rollout(Object)}
+ * instead of stepping through {@code getValidMoves}/{@code getNextState} per ply.
+ * Implementations are expected to reuse per-thread scratch buffers so that a
+ * playout does not allocate.
+ */
+public interface FastRollout<S> {
+    /**
+     * Plays uniformly random moves from {@code state}, starting with the side to move,
+     * until the game ends. {@code state} itself must not be modified.
+     *
+     * @return +1 if the side to move in {@code state} wins the playout, -1 if it loses
+     */
+    double rollout(S state);
+
+    /**
+     * Same as {@link #rollout(Object)}, also appending every move of the playout to
+     * {@code trace}. The default records nothing, so RAVE then only learns from the
+     * moves inside the tree.
+     */
+    default double rollout(S state, RolloutTrace trace) {
+        return rollout(state);
+    }
+}
@@ -0,0 +1,108 @@
+package AI.mcts;
+
+import java.util.Arrays;
+
+/**
+ * Search tree stored as parallel primitive arrays instead of {@link Node} objects.
+ *
+ * <p>A node is an index. Children form a singly linked list through
+ * {@code firstChild}/{@code nextSibling}. No game state is kept: the search
+ * replays the actions from the root along the selected path. This costs about
+ * 32 bytes per node, against a {@code Node} plus its state and move mask.
+ */
+final class FlatTree {
+    static final int NONE = -1;
+    static final int ROOT = 0;
+
+    private int size;
+    private int[] parent;
+    private int[] firstChild;
+    private int[] nextSibling;
+    private int[] action;
+    private int[] untried;
+    private int[] visits;
+    private double[] valueSum;
+
+    FlatTree(int capacity) {
+        capacity = Math.max(capacity, 16);
+        parent = new int[capacity];
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+        action = new int[capacity];
+        untried = new int[capacity];
+        visits = new int[capacity];
+        valueSum = new double[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Appends a node with {@code untriedMoves} legal moves still to expand and links
+     * it as the first child of {@code parentNode} ({@link #NONE} for the root).
+     */
+    int add(int parentNode, int move, int untriedMoves) {
+        if (size == parent.length) {
+            grow();
+        }
+        int node = size++;
+        parent[node] = parentNode;
+        firstChild[node] = NONE;
+        action[node] = move;
+        untried[node] = untriedMoves;
+        visits[node] = 0;
+        valueSum[node] = 0.0;
+        if (parentNode != NONE) {
+            nextSibling[node] = firstChild[parentNode];
+            firstChild[parentNode] = node;
+            untried[parentNode]--;
+        } else {
+            nextSibling[node] = NONE;
+        }
+        return node;
+    }
+
+    int parent(int node)      { return parent[node]; }
+    int firstChild(int node)  { return firstChild[node]; }
+    int nextSibling(int node) { return nextSibling[node]; }
+    int action(int node)      { return action[node]; }
+    int visits(int node)      { return visits[node]; }
+
+    boolean isFullyExpanded(int node) {
+        return untried[node] == 0 && firstChild[node] != NONE;
+    }
+
+    /** Same UCB rule as {@code Node.select}, over the child list of {@code node}. */
+    int select(int node, double c) {
+        double logParent = Math.log(Math.max(1, visits[node]));
+        int best = NONE;
+        double bestUcb = Double.NEGATIVE_INFINITY;
+        for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+            int n = Math.max(1, visits[child]);
+            double mean = valueSum[child] / n;
+            double ucb = 1.0 - ((mean + 1.0) / 2.0) + c * Math.sqrt(logParent / n);
+            if (ucb > bestUcb) {
+                bestUcb = ucb;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    void update(int node, double value) {
+        visits[node]++;
+        valueSum[node] += value;
+    }
+
+    private void grow() {
+        int capacity = parent.length + (parent.length >> 1);
+        parent = Arrays.copyOf(parent, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        nextSibling = Arrays.copyOf(nextSibling, capacity);
+        action = Arrays.copyOf(action, capacity);
+        untried = Arrays.copyOf(untried, capacity);
+        visits = Arrays.copyOf(visits, capacity);
+        valueSum = Arrays.copyOf(valueSum, capacity);
+    }
+}
@@ -0,0 +1,15 @@
+package AI.mcts;
+
+/**
+ * Replaces random rollouts with a learned evaluation (e.g. a policy/value network).
+ * When {@link MCTS} is given one, a leaf is evaluated once, the value is backed up
+ * directly, and the policy becomes the prior of its moves; a move's child is only
+ * created when selection first picks it.
+ *
+ * <p>Called concurrently by the search workers when {@link MctsArgs#numThreads} is
+ * above 1.
+ */
+public interface LeafEvaluator<S> {
+    /** Evaluates a non-terminal {@code state} from the point of view of its player to move. */
+    Evaluation evaluate(S state);
+}
@@ -1,52 +1,485 @@
 package AI.mcts;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Monte Carlo tree search over an {@link MctsGame}. With {@link MctsArgs#numThreads}
+ * above 1 the instance owns a worker pool; {@link #close()} releases it, and idle
+ * workers also exit on their own after a few seconds.
+ */
+public final class MCTS<S> implements AutoCloseable {
+    private static final long WORKER_KEEP_ALIVE_SECONDS = 5;
 
-public final class MCTS<S> {
     private final MctsGame<S> game;
     private final MctsArgs args;
+    private ExecutorService workers;
+    // Token of the search in progress, for cancel(); null between searches
+    private volatile SearchToken running;
+    // Tree kept between searches when args.reuseTree is set
+    private Node<S> kept;
+    // Shared by the tree-parallel workers; null unless args.transpositionMegabytes > 0
+    private final TranspositionTable<S> table;
+    // Replaces rollouts when not null
+    private final LeafEvaluator<S> evaluator;
 
     public MCTS(MctsGame<S> game, MctsArgs args) {
+        this(game, args, null);
+    }
+
+    /**
+     * Search guided by {@code evaluator} instead of random rollouts: every leaf is
+     * evaluated once, its value is backed up, and the evaluator's policy becomes the
+     * prior of its moves. A move's child is only created when selection first picks
+     * it. Needs {@link SelectionPolicy#PUCT}, the only policy that reads priors; not
+     * available with a flat tree.
+     */
+    public MCTS(MctsGame<S> game, MctsArgs args, LeafEvaluator<S> evaluator) {
+        if (evaluator != null && args.flatTree) {
+            throw new IllegalArgumentException("a leaf evaluator needs Node trees, not flatTree");
+        }
+        if (evaluator != null && !(args.selection instanceof PuctPolicy)) {
+            throw new IllegalArgumentException("a leaf evaluator needs SelectionPolicy.PUCT to use its policy");
+        }
         this.game = game;
         this.args = args;
+        this.evaluator = evaluator;
+        this.table = args.transpositionMegabytes > 0
+                ? new TranspositionTable<>(game, args.transpositionMegabytes)
+                : null;
     }
 
     public double[] search (S root_state) {
-        Node<S> root = new Node<>(game, args, root_state, null, null);
+        return search(root_state, new SearchToken());
+    }
+
+    /** Like {@link #search(Object)}, stopping early once {@code token} is cancelled. */
+    public double[] search(S root_state, SearchToken token) {
+        long deadline = args.timeLimitMillis > 0
+                ? System.nanoTime() + args.timeLimitMillis * 1_000_000L
+                : Long.MAX_VALUE;
+        return searchUntil(root_state, deadline, token);
+    }
+
+    /**
+     * Anytime search: stops at the first of {@link MctsArgs#numSearches} iterations,
+     * {@link MctsArgs#maxNodes} tree nodes, the {@link System#nanoTime()} deadline, or
+     * {@link #cancel()}, and returns the visit distribution gathered until then.
+     *
+     * @param deadlineNanos {@code System.nanoTime()} value to stop at, {@code Long.MAX_VALUE} for none
+     */
+    public double[] searchUntil(S root_state, long deadlineNanos) {
+        return searchUntil(root_state, deadlineNanos, new SearchToken());
+    }
+
+    /**
+     * Like {@link #searchUntil(Object, long)}, also stopping once {@code token} is
+     * cancelled, including when that happened before the search started.
+     */
+    public double[] searchUntil(S root_state, long deadlineNanos, SearchToken token) {
+        running = token;
+        try {
+            return runSearch(root_state, deadlineNanos, token);
+        } finally {
+            running = null;
+        }
+    }
+
+    private double[] runSearch(S root_state, long deadlineNanos, SearchToken token) {
+        double[] action_probs = new double[game.actionSize()];
+
+        if (args.flatTree) {
+            searchFlat(root_state, new Budget(deadlineNanos, 0, token), action_probs);
+        } else if (args.numThreads > 1 && args.parallelism == MctsArgs.Parallelism.ROOT) {
+            searchRootParallel(root_state, new Budget(deadlineNanos, 0, token), action_probs);
+        } else {
+            Node<S> root = args.reuseTree ? reusableRoot(root_state) : null;
+            if (root == null) {
+                root = new Node<>(game, args, root_state, null, null);
+                if (table != null) {
+                    table.clear();
+                    table.put(root);
+                }
+            }
+            kept = args.reuseTree ? root : null;
+            // visits already in a reused subtree count towards numSearches
+            Budget budget = new Budget(deadlineNanos, root.visit_count, token);
+            if (args.numThreads > 1) {
+                searchParallel(root, budget);
+            } else {
+                SearchPath<S> path = newPath();
+                while (budget.next()) {
+                    playout(root, 0, budget, path, table);
+                }
+            }
+            addRootVisits(root, action_probs);
+        }
+
+        if (args.symmetryDepth > 0) {
+            shareOverSymmetricMoves(root_state, action_probs);
+        }
+        if (!normalizeInPlace(action_probs)) {
+            // stopped before the first visit: fall back to uniform over the legal moves
+            boolean[] valid = game.getValidMoves(root_state);
+            for (int a = 0; a < valid.length; a++) {
+                action_probs[a] = valid[a] ? 1.0 : 0.0;
+            }
+            normalizeInPlace(action_probs);
+        }
+        return action_probs;
+    }
+
+    /**
+     * Finds {@code root_state} in the kept tree: the root itself, a child (our move
+     * only) or a grandchild (our move and the opponent's reply). States are compared
+     * with {@code equals}.
+     */
+    private Node<S> reusableRoot(S root_state) {
+        Node<S> old = kept;
+        kept = null;
+        if (old == null) {
+            return null;
+        }
+        if (old.state.equals(root_state)) {
+            return old;
+        }
+        for (int i = 0; i < old.childCount(); i++) {
+            Node<S> child = old.child(i);
+            if (child.state.equals(root_state)) {
+                child.detach();
+                return child;
+            }
+            for (int j = 0; j < child.childCount(); j++) {
+                Node<S> grandchild = child.child(j);
+                if (grandchild.state.equals(root_state)) {
+                    grandchild.detach();
+                    return grandchild;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Drops the tree kept for reuse. */
+    public void clearTree() {
+        kept = null;
+    }
+
+    /**
+     * Asks the running search to stop; it returns the policy gathered so far. Does
+     * nothing between searches, so a late call cannot cut the next search short; to
+     * cancel a search that may not have started yet, give it a {@link SearchToken}.
+     * Safe from any thread.
+     */
+    public void cancel() {
+        SearchToken token = running;
+        if (token != null) {
+            token.cancel();
+        }
+    }
+
+    private void addRootVisits(Node<S> root, double[] visits) {
+        for (int i = 0; i < root.childCount(); i++) {
+            visits[root.childAction(i)] += root.child(i).visit_count;
+        }
+    }
 
-        for (int search = 0; search < args.numSearches; search++) {
-            Node<S> node = root;
+    /**
+     * Symmetric root moves are searched as one child; gives every move of such a class
+     * the class's mean visit count, so the policy does not prefer the searched one.
+     */
+    private void shareOverSymmetricMoves(S root_state, double[] visits) {
+        boolean[] valid = game.getValidMoves(root_state);
+        Map<Long, List<Integer>> classes = new HashMap<>();
+        for (int a = 0; a < valid.length; a++) {
+            if (valid[a]) {
+                long key = game.canonicalKey(childState(root_state, a));
+                classes.computeIfAbsent(key, k -> new ArrayList<>()).add(a);
+            }
+        }
+        for (List<Integer> moves : classes.values()) {
+            if (moves.size() < 2) continue;
+            double total = 0;
+            for (int a : moves) total += visits[a];
+            for (int a : moves) visits[a] = total / moves.size();
+        }
+    }
 
-            while (node.isFullyExpanded()){
-                node = node.select();
+    /**
+     * One select-expand-simulate-backpropagate iteration. The visited nodes are
+     * recorded in {@code path}, which is then used for backpropagation. With a
+     * non-null {@code transpositions} table, expansion links already known positions.
+     * With an evaluator the leaf itself is evaluated instead, and its children are
+     * added one at a time as selection picks them.
+     */
+    private void playout(Node<S> root, int virtualLoss, Budget budget, SearchPath<S> path,
+                         TranspositionTable<S> transpositions) {
+        path.clear();
+        boolean rave = args.raveEquivalence > 0;
+        Node<S> node = root;
+        node.addVirtualLoss(virtualLoss);
+        path.add(node, -1);
+        double value;
+        while (true) {
+            if (node.isFullyExpanded()) {
+                int i = node.selectIndex();
+                if (i < 0) {
+                    // an evaluated node picked a move that has no child yet
+                    i = node.expandAction(-1 - i, transpositions);
+                    if (i < 0) {
+                        continue; // another worker created it first, select again
+                    }
+                    budget.nodeAdded();
+                }
+                Node<S> parent = node;
+                node = parent.child(i);
+                node.addVirtualLoss(virtualLoss);
+                path.add(node, parent.childAction(i));
+                continue;
             }
 
+            // value_sum is kept from the perspective of the player to move at that node
             Outcome outcome = game.valueAndTerminated(node.state, node.action_taken);
-            double value = game.opponentValue(outcome.value);
+            if (outcome.terminal) {
+                value = outcome.value;
+                break;
+            }
 
-            if (!outcome.terminal) {
-                node = node.expand();
-                value = node.simulate();
+            if (evaluator != null) {
+                Evaluation evaluation = evaluator.evaluate(node.state);
+                node.setPriors(evaluation.policy);
+                node.setEvaluated();
+                value = evaluation.value;
+                break;
             }
 
-            node.backpropagate(value);
+            int i = node.expand(transpositions);
+            if (i < 0) {
+                continue; // another worker took the last untried move, select instead
+            }
+            budget.nodeAdded();
+            Node<S> parent = node;
+            node = parent.child(i);
+            node.addVirtualLoss(virtualLoss);
+            path.add(node, parent.childAction(i));
+            value = rave ? node.simulate(path.trace()) : node.simulate();
+            break;
         }
 
-        double[] action_probs = new double[game.actionSize()];
-        for (Node<S> child : root.children) {
-            action_probs[child.action_taken] = child.visit_count;
+        if (rave) {
+            path.updateAmaf(game, value);
         }
-        normalizeInPlace(action_probs);
-        return action_probs;
+        path.backpropagate(game, value, virtualLoss);
     }
 
-    private void normalizeInPlace(double[] x) {
+    private SearchPath<S> newPath() {
+        // enough when every action is played at most once per game, as in Hex; grows otherwise
+        return new SearchPath<>(game.actionSize() + 1, game.actionSize());
+    }
+
+    /**
+     * Same iteration as {@link #playout} on a {@link FlatTree}. States are not stored
+     * but rebuilt by replaying the actions along the selected path.
+     */
+    private void searchFlat(S root_state, Budget budget, double[] visits) {
+        FlatTree tree = new FlatTree(Math.min(args.numSearches, 1 << 16) + 1);
+        tree.add(FlatTree.NONE, -1, countTrue(game.getValidMoves(root_state)));
+        boolean[] taken = new boolean[game.actionSize()];
+
+        while (budget.next()) {
+            int node = FlatTree.ROOT;
+            S state = root_state;
+            while (tree.isFullyExpanded(node)) {
+                node = tree.select(node, args.c);
+                state = childState(state, tree.action(node));
+            }
+
+            double value;
+            Outcome outcome = game.valueAndTerminated(state, null);
+            if (outcome.terminal) {
+                value = outcome.value;
+            } else {
+                boolean[] valid = game.getValidMoves(state);
+                for (int child = tree.firstChild(node); child != FlatTree.NONE; child = tree.nextSibling(child)) {
+                    taken[tree.action(child)] = true;
+                }
+                int action = pickUntried(valid, taken);
+                for (int child = tree.firstChild(node); child != FlatTree.NONE; child = tree.nextSibling(child)) {
+                    taken[tree.action(child)] = false;
+                }
+                state = childState(state, action);
+                boolean[] childValid = game.getValidMoves(state);
+                node = tree.add(node, action, countTrue(childValid));
+                budget.nodeAdded();
+                Outcome childOutcome = game.valueAndTerminated(state, action);
+                value = childOutcome.terminal ? childOutcome.value : Node.rollout(game, state);
+            }
+
+            for (; node != FlatTree.NONE; node = tree.parent(node)) {
+                tree.update(node, value);
+                value = game.opponentValue(value);
+            }
+        }
+
+        for (int child = tree.firstChild(FlatTree.ROOT); child != FlatTree.NONE; child = tree.nextSibling(child)) {
+            visits[tree.action(child)] += tree.visits(child);
+        }
+    }
+
+    private S childState(S state, int action) {
+        return game.changePerspective(game.getNextState(state, action, 1), -1);
+    }
+
+    private static int countTrue(boolean[] bits) {
+        int count = 0;
+        for (boolean b : bits) if (b) count++;
+        return count;
+    }
+
+    private static int pickUntried(boolean[] valid, boolean[] taken) {
+        int count = 0;
+        for (int a = 0; a < valid.length; a++) if (valid[a] && !taken[a]) count++;
+        int k = ThreadLocalRandom.current().nextInt(count);
+        for (int a = 0; a < valid.length; a++) {
+            if (valid[a] && !taken[a]) {
+                if (k == 0) return a;
+                k--;
+            }
+        }
+        throw new AssertionError("unreachable");
+    }
+
+    /**
+     * Tree parallelisation: {@link MctsArgs#numThreads} workers share {@code root} and
+     * draw iterations from the same budget.
+     */
+    private void searchParallel(Node<S> root, Budget budget) {
+        List<Future<?>> running = new ArrayList<>(args.numThreads);
+        for (int t = 0; t < args.numThreads; t++) {
+            running.add(workers().submit(() -> {
+                SearchPath<S> path = newPath();
+                while (budget.next()) {
+                    playout(root, args.virtualLoss, budget, path, table);
+                }
+            }));
+        }
+        try {
+            for (Future<?> f : running) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            budget.token.cancel();
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            budget.token.cancel();
+            throw new IllegalStateException("MCTS worker failed", e.getCause());
+        }
+    }
+
+    /**
+     * Root parallelisation: {@link MctsArgs#numThreads} independent trees draw from one
+     * budget, and their root child visits are summed.
+     */
+    private void searchRootParallel(S root_state, Budget budget, double[] visits) {
+        List<Future<Node<S>>> running = new ArrayList<>(args.numThreads);
+        for (int t = 0; t < args.numThreads; t++) {
+            running.add(workers().submit(() -> {
+                Node<S> root = new Node<>(game, args, root_state, null, null);
+                SearchPath<S> path = newPath();
+                while (budget.next()) {
+                    playout(root, 0, budget, path, null); // independent trees share nothing
+                }
+                return root;
+            }));
+        }
+        try {
+            for (Future<Node<S>> f : running) {
+                addRootVisits(f.get(), visits);
+            }
+        } catch (InterruptedException e) {
+            budget.token.cancel();
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            budget.token.cancel();
+            throw new IllegalStateException("MCTS worker failed", e.getCause());
+        }
+    }
+
+    private synchronized ExecutorService workers() {
+        if (workers == null) {
+            // fixed size, but idle threads time out so an unclosed instance does not pin them
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(args.numThreads, args.numThreads,
+                    WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                        Thread t = new Thread(r, "mcts-worker");
+                        t.setDaemon(true);
+                        return t;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            workers = pool;
+        }
+        return workers;
+    }
+
+    /** Shuts the worker pool down; a later parallel search starts a new one. */
+    @Override
+    public synchronized void close() {
+        if (workers != null) {
+            workers.shutdown();
+            workers = null;
+        }
+    }
+
+    private boolean normalizeInPlace(double[] x) {
         double sum = Arrays.stream(x).sum();
         if (sum <= 0) {
-            return;
+            return false;
         }
         for (int i = 0; i < x.length; i++) {
             x[i] /= sum;
         }
+        return true;
+    }
+
+    /** Iteration, node and time limits of one search, shared by all its workers. */
+    private final class Budget {
+        private final AtomicInteger searches = new AtomicInteger();
+        private final AtomicInteger nodes = new AtomicInteger();
+        private final long deadlineNanos;
+        private final SearchToken token;
+
+        Budget(long deadlineNanos, int searchesDone, SearchToken token) {
+            this.deadlineNanos = deadlineNanos;
+            this.searches.set(searchesDone);
+            this.token = token;
+        }
+
+        /** Claims one iteration, or returns {@code false} once any limit is reached. */
+        boolean next() {
+            if (token.isCancelled()) {
+                return false;
+            }
+            if (deadlineNanos != Long.MAX_VALUE && System.nanoTime() - deadlineNanos >= 0) {
+                return false;
+            }
+            if (args.maxNodes > 0 && nodes.get() >= args.maxNodes) {
+                return false;
+            }
+            return searches.getAndIncrement() < args.numSearches;
+        }
+
+        void nodeAdded() {
+            nodes.incrementAndGet();
+        }
     }
 }
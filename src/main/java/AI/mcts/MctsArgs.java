@@ -1,11 +1,174 @@
 package AI.mcts;
 
+import java.util.function.Consumer;
+
+/**
+ * Immutable search settings. Start from {@code new MctsArgs(c, numSearches)} and
+ * derive variants with the {@code with...} methods, e.g.
+ * {@code new MctsArgs(1.4, 800).withThreads(8).withTimeLimit(500)}.
+ */
 public final class MctsArgs {
+    /** How {@link #numThreads} workers split a search. */
+    public enum Parallelism {
+        /** All workers descend one shared tree, using virtual loss. */
+        TREE,
+        /** Every worker searches its own tree; root visit counts are summed. */
+        ROOT
+    }
+
     public final double c;
     public final int numSearches;
+    /** Workers used per search; 1 keeps the search on the calling thread. */
+    public final int numThreads;
+    public final Parallelism parallelism;
+    /** Virtual losses put on a node while a worker is below it (tree parallelism only). */
+    public final int virtualLoss;
+    /** Wall-clock limit per search in milliseconds; 0 means no limit. */
+    public final long timeLimitMillis;
+    /** Limit on nodes added to the tree per search; 0 means no limit. */
+    public final int maxNodes;
+    /** Keep the tree between searches and continue from the subtree matching the next root state. */
+    public final boolean reuseTree;
+    /** Store the tree in primitive arrays (see FlatTree); single-threaded, without tree reuse. */
+    public final boolean flatTree;
+    /** Memory for the transposition table in megabytes; 0 disables it (Node trees only, not root-parallel). */
+    public final int transpositionMegabytes;
+    /**
+     * Nodes shallower than this drop children that are symmetric to an earlier sibling
+     * (same {@link MctsGame#canonicalKey}); the root's visits are then shared out over
+     * each symmetric class. 0 disables it.
+     */
+    public final int symmetryDepth;
+    /**
+     * RAVE equivalence parameter k: a child's all-moves-as-first value gets weight
+     * sqrt(k / (3 * visits + k)) against its own mean, so it dominates for the first
+     * few visits and fades out once visits reach about k. 0 disables RAVE
+     * (Node trees only).
+     */
+    public final int raveEquivalence;
+    /** Exploration rule for Node trees; the flat tree always uses UCT. */
+    public final SelectionPolicy selection;
 
     public MctsArgs(double c, int numSearches) {
         this.c = c;
         this.numSearches = numSearches;
+        this.numThreads = 1;
+        this.parallelism = Parallelism.TREE;
+        this.virtualLoss = 1;
+        this.timeLimitMillis = 0;
+        this.maxNodes = 0;
+        this.reuseTree = false;
+        this.flatTree = false;
+        this.transpositionMegabytes = 0;
+        this.symmetryDepth = 0;
+        this.raveEquivalence = 0;
+        this.selection = SelectionPolicy.UCT;
+    }
+
+    private MctsArgs(Settings s) {
+        this.c = s.c;
+        this.numSearches = s.numSearches;
+        this.numThreads = s.numThreads;
+        this.parallelism = s.parallelism;
+        this.virtualLoss = s.virtualLoss;
+        this.timeLimitMillis = s.timeLimitMillis;
+        this.maxNodes = s.maxNodes;
+        this.reuseTree = s.reuseTree;
+        this.flatTree = s.flatTree;
+        this.transpositionMegabytes = s.transpositionMegabytes;
+        this.symmetryDepth = s.symmetryDepth;
+        this.raveEquivalence = s.raveEquivalence;
+        this.selection = s.selection;
+    }
+
+    public MctsArgs withThreads(int numThreads) {
+        if (numThreads < 1) throw new IllegalArgumentException("numThreads must be >= 1");
+        return with(s -> s.numThreads = numThreads);
+    }
+
+    public MctsArgs withParallelism(Parallelism parallelism) {
+        return with(s -> s.parallelism = parallelism);
+    }
+
+    public MctsArgs withVirtualLoss(int virtualLoss) {
+        if (virtualLoss < 0) throw new IllegalArgumentException("virtualLoss must be >= 0");
+        return with(s -> s.virtualLoss = virtualLoss);
+    }
+
+    public MctsArgs withTimeLimit(long timeLimitMillis) {
+        if (timeLimitMillis < 0) throw new IllegalArgumentException("timeLimitMillis must be >= 0");
+        return with(s -> s.timeLimitMillis = timeLimitMillis);
+    }
+
+    public MctsArgs withMaxNodes(int maxNodes) {
+        if (maxNodes < 0) throw new IllegalArgumentException("maxNodes must be >= 0");
+        return with(s -> s.maxNodes = maxNodes);
+    }
+
+    public MctsArgs withTreeReuse(boolean reuseTree) {
+        return with(s -> s.reuseTree = reuseTree);
+    }
+
+    public MctsArgs withFlatTree(boolean flatTree) {
+        return with(s -> s.flatTree = flatTree);
+    }
+
+    public MctsArgs withTranspositionTable(int megabytes) {
+        if (megabytes < 0) throw new IllegalArgumentException("megabytes must be >= 0");
+        return with(s -> s.transpositionMegabytes = megabytes);
+    }
+
+    public MctsArgs withSymmetryPruning(int depth) {
+        if (depth < 0) throw new IllegalArgumentException("depth must be >= 0");
+        return with(s -> s.symmetryDepth = depth);
+    }
+
+    public MctsArgs withRave(int equivalence) {
+        if (equivalence < 0) throw new IllegalArgumentException("equivalence must be >= 0");
+        return with(s -> s.raveEquivalence = equivalence);
+    }
+
+    public MctsArgs withSelection(SelectionPolicy selection) {
+        if (selection == null) throw new IllegalArgumentException("selection must not be null");
+        return with(s -> s.selection = selection);
+    }
+
+    private MctsArgs with(Consumer<Settings> change) {
+        Settings s = new Settings(this);
+        change.accept(s);
+        return new MctsArgs(s);
+    }
+
+    /** Mutable copy of the fields, only used while deriving a new instance. */
+    private static final class Settings {
+        double c;
+        int numSearches;
+        int numThreads;
+        Parallelism parallelism;
+        int virtualLoss;
+        long timeLimitMillis;
+        int maxNodes;
+        boolean reuseTree;
+        boolean flatTree;
+        int transpositionMegabytes;
+        int symmetryDepth;
+        int raveEquivalence;
+        SelectionPolicy selection;
+
+        Settings(MctsArgs a) {
+            c = a.c;
+            numSearches = a.numSearches;
+            numThreads = a.numThreads;
+            parallelism = a.parallelism;
+            virtualLoss = a.virtualLoss;
+            timeLimitMillis = a.timeLimitMillis;
+            maxNodes = a.maxNodes;
+            reuseTree = a.reuseTree;
+            flatTree = a.flatTree;
+            transpositionMegabytes = a.transpositionMegabytes;
+            symmetryDepth = a.symmetryDepth;
+            raveEquivalence = a.raveEquivalence;
+            selection = a.selection;
+        }
     }
-}
\ No newline at end of file
+}
@@ -8,4 +8,21 @@ public interface MctsGame<S>{
     Outcome valueAndTerminated(S state, Integer player);
     int opponent(int player);
     double opponentValue(double v);
+
+    /**
+     * Hash of a position, used by the transposition table. Positions that are
+     * {@code equals} must have the same key; games with an incremental hash
+     * (e.g. Zobrist) should override this.
+     */
+    default long positionKey(S state) {
+        return state.hashCode();
+    }
+
+    /**
+     * Like {@link #positionKey}, but equal for positions that are the same up to a
+     * symmetry of the game. Used to prune symmetric duplicates near the root.
+     */
+    default long canonicalKey(S state) {
+        return positionKey(state);
+    }
 }
@@ -1,123 +1,383 @@
 package AI.mcts;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * Search tree node. Statistics are updated with atomic operations and children are
+ * published through a volatile counter, so several workers can share one tree
+ * (see {@link MctsArgs#numThreads}).
+ */
 public final class Node<S>  {
+    private static final VarHandle VISIT_COUNT;
+    private static final VarHandle VALUE_SUM;
+    private static final VarHandle VALUE_SQ_SUM;
+    private static final VarHandle VIRTUAL_LOSS;
+    private static final VarHandle AMAF_VISITS;
+    private static final VarHandle AMAF_VALUE;
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            VISIT_COUNT = lookup.findVarHandle(Node.class, "visit_count", int.class);
+            VALUE_SUM = lookup.findVarHandle(Node.class, "value_sum", double.class);
+            VALUE_SQ_SUM = lookup.findVarHandle(Node.class, "value_sq_sum", double.class);
+            VIRTUAL_LOSS = lookup.findVarHandle(Node.class, "virtual_loss", int.class);
+            AMAF_VISITS = lookup.findVarHandle(Node.class, "amaf_visits", int.class);
+            AMAF_VALUE = lookup.findVarHandle(Node.class, "amaf_value", double.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private final MctsGame<S> game;
     private final MctsArgs args;
     public final S state;
-    public final Node<S> parent;
+    // Null for a root; only detach() changes it
+    private Node<S> parent;
     public final Integer action_taken;
-    public final List<Node<S>> children = new ArrayList<>();
-    private final boolean[] expandable_moves;
-    public int visit_count = 0;
-    public double value_sum = 0.0;
+    // Distance from the root the node was created under
+    private final int depth;
+    private final Node<S>[] children;
+    private volatile int child_count = 0;
+    // Legal actions; [0, child_count) are expanded, the rest are still untried
+    private final int[] actions;
+    // Prior probability per entry of actions (moved along with it); null means uniform
+    private volatile double[] priors;
+    // Set once a leaf evaluator has scored this node: untried actions then compete in
+    // selection on their prior alone and become children only when first picked
+    private volatile boolean evaluated = false;
+    public volatile int visit_count = 0;
+    public volatile double value_sum = 0.0;
+    // Sum of squared values, for variance-aware selection (UCB1-Tuned)
+    public volatile double value_sq_sum = 0.0;
+    // Pending losses from workers currently below this node
+    private volatile int virtual_loss = 0;
+    // All-moves-as-first statistics: playouts through the parent in which this node's
+    // move was played later by the same side; same perspective as value_sum
+    public volatile int amaf_visits = 0;
+    public volatile double amaf_value = 0.0;
 
+    @SuppressWarnings("unchecked")
     public Node(MctsGame<S> game, MctsArgs args, S state, Node<S> parent, Integer action_taken) {
         this.game = game;
         this.args = args;
         this.state = state;
         this.parent = parent;
         this.action_taken = action_taken;
-        this.expandable_moves = game.getValidMoves(state);
+        this.depth = parent == null ? 0 : parent.depth + 1;
+        boolean[] valid_moves = game.getValidMoves(state);
+        int valid = 0;
+        for (boolean can_expand : valid_moves) {
+            if (can_expand) valid++;
+        }
+        int[] legal = new int[valid];
+        int k = 0;
+        for (int a = 0; a < valid_moves.length; a++) {
+            if (valid_moves[a]) legal[k++] = a;
+        }
+        this.actions = depth < args.symmetryDepth ? distinctUpToSymmetry(game, state, legal) : legal;
+        this.children = (Node<S>[]) new Node[actions.length];
     }
 
-    public boolean isFullyExpanded() {
-        boolean any_expandable = false;
-        for (boolean can_expand : expandable_moves) {
-            if (can_expand) {
-                any_expandable = true;
+    /** Keeps the first of every group of actions whose resulting positions are symmetric. */
+    private static <S> int[] distinctUpToSymmetry(MctsGame<S> game, S state, int[] legal) {
+        Set<Long> seen = new HashSet<>();
+        int k = 0;
+        for (int action : legal) {
+            S child_state = game.changePerspective(game.getNextState(state, action, 1), -1);
+            if (seen.add(game.canonicalKey(child_state))) {
+                legal[k++] = action;
             }
         }
-        return !any_expandable && !children.isEmpty();
+        return k == legal.length ? legal : Arrays.copyOf(legal, k);
+    }
+
+    /** The node this one was expanded from, or {@code null} for a root. */
+    public Node<S> parent() {
+        return parent;
+    }
+
+    /** Makes this node a root; the old ancestors become unreachable from it. */
+    void detach() {
+        parent = null;
+    }
+
+    public int childCount() {
+        return child_count;
+    }
+
+    public Node<S> child(int i) {
+        return children[i];
+    }
+
+    /**
+     * Action leading from this node to {@code child(i)}. Use this rather than the
+     * child's {@code action_taken}: with a transposition table a child can be shared
+     * by parents that reach it with different moves.
+     */
+    public int childAction(int i) {
+        return actions[i];
+    }
+
+    public boolean isFullyExpanded() {
+        if (evaluated) {
+            return actions.length > 0;
+        }
+        int count = child_count;
+        return count == children.length && count > 0;
     }
 
     public Node<S> select(){
-        Node<S> best_child = null;
+        while (true) {
+            int i = selectIndex();
+            if (i < 0) {
+                i = expandAction(-1 - i, null);
+            }
+            if (i >= 0) {
+                return children[i];
+            }
+        }
+    }
+
+    /**
+     * Index of the child {@link #select()} would return. On an {@link #setEvaluated
+     * evaluated} node the pick can be an action without a child yet, returned as
+     * {@code -1 - action} for {@link #expandAction}.
+     */
+    int selectIndex() {
+        SelectionPolicy policy = args.selection;
+        double parentTerm = policy.parentTerm(visit_count, args.c);
+        double[] p = priors;
+        double uniform = 1.0 / actions.length;
+        int best = -1;
         double best_ucb = Double.NEGATIVE_INFINITY;
-        for (Node<S> child : children) {
-            double ucb = getUcb(child);
+        int count = child_count;
+        for (int i = 0; i < count; i++) {
+            Node<S> child = children[i];
+            int pending = child.virtual_loss;
+            int visits = child.visit_count + pending;
+            double ucb = getQ(child, visits, pending)
+                    + policy.exploration(child, visits, p != null ? p[i] : uniform, parentTerm, args.c);
             if (ucb > best_ucb) {
                 best_ucb = ucb;
-                best_child = child;
+                best = i;
+            }
+        }
+        if (evaluated) {
+            // untried actions: no visits, scored like an unvisited child (Q of 0.5)
+            for (int i = count; i < actions.length; i++) {
+                double ucb = 0.5 + policy.exploration(null, 0, p != null ? p[i] : uniform, parentTerm, args.c);
+                if (ucb > best_ucb) {
+                    best_ucb = ucb;
+                    best = -1 - actions[i];
+                }
             }
         }
-        return best_child;
+        return best;
+    }
+
+    /**
+     * Marks this node as scored by a leaf evaluator (after {@link #setPriors}). From
+     * then on it counts as fully expanded, and selection also considers its untried
+     * actions, creating a child only when one is picked. This keeps the tree to the
+     * positions actually visited instead of every legal reply of every leaf.
+     */
+    void setEvaluated() {
+        evaluated = true;
     }
 
-    private double getUcb(Node<S> child) {
-        double mean = child.value_sum / Math.max(1, child.visit_count);
+    /**
+     * Sets the prior probability of each action from {@code policy}, indexed by
+     * action. Entries of illegal actions are ignored and the rest are renormalised;
+     * if they sum to zero the prior stays uniform. Used by {@link SelectionPolicy#PUCT}.
+     */
+    public synchronized void setPriors(double[] policy) {
+        double[] p = new double[actions.length];
+        double sum = 0;
+        for (int i = 0; i < actions.length; i++) {
+            p[i] = Math.max(0.0, policy[actions[i]]);
+            sum += p[i];
+        }
+        if (sum <= 0) {
+            return;
+        }
+        for (int i = 0; i < p.length; i++) {
+            p[i] /= sum;
+        }
+        priors = p;
+    }
+
+    /** Mean value of {@code child} for this node's player, on a 0..1 scale. */
+    private double getQ(Node<S> child, int visits, int pending) {
+        // A virtual loss counts as a visit that the child's player won, i.e. a loss for us
+        double mean = (child.value_sum + pending) / Math.max(1, visits);
         double qValue = 1.0 - ((mean + 1.0) / 2.0);
-        double expl = args.c * Math.sqrt(Math.log(Math.max(1, this.visit_count)) / Math.max(1, child.visit_count));
-        return qValue + expl;
+        int amafVisits = child.amaf_visits;
+        if (args.raveEquivalence > 0 && amafVisits > 0) {
+            double amafMean = child.amaf_value / amafVisits;
+            double amafQ = 1.0 - ((amafMean + 1.0) / 2.0);
+            double beta = Math.sqrt(args.raveEquivalence / (3.0 * visits + args.raveEquivalence));
+            qValue = (1.0 - beta) * qValue + beta * amafQ;
+        }
+        return qValue;
     }
 
+    /**
+     * Adds one untried child. Returns {@code null} if another worker expanded the
+     * last untried move first.
+     */
     public Node<S> expand() {
-        int action = pickRandomExpandable();
-        expandable_moves[action] = false;
+        int i = expand(null);
+        return i < 0 ? null : children[i];
+    }
+
+    /**
+     * Like {@link #expand()}, but returns the new child's index (-1 instead of null),
+     * and if {@code table} already holds a node for the new position that node is
+     * linked as the child instead of creating a new one.
+     */
+    synchronized int expand(TranspositionTable<S> table) {
+        int count = child_count;
+        if (count == children.length) {
+            return -1;
+        }
+        // Pop a random untried action: swap it to the front of the untried range
+        return expandAt(count + ThreadLocalRandom.current().nextInt(actions.length - count), table);
+    }
+
+    /** Moves untried {@code actions[pick]} to the end of the expanded range and adds its child. */
+    private int expandAt(int pick, TranspositionTable<S> table) {
+        int count = child_count;
+        int action = actions[pick];
+        actions[pick] = actions[count];
+        actions[count] = action;
+        if (priors != null) {
+            double prior = priors[pick];
+            priors[pick] = priors[count];
+            priors[count] = prior;
+        }
         S child_state = game.getNextState(state, action, 1);
         child_state = game.changePerspective(child_state, -1);
-        Node<S> child = new Node<>(game, args, child_state, this, action);
-        children.add(child);
-        return child;
+        Node<S> child = table != null ? table.get(child_state) : null;
+        if (child == null) {
+            child = new Node<>(game, args, child_state, this, action);
+            if (table != null) {
+                table.put(child);
+            }
+        }
+        children[count] = child;
+        child_count = count + 1; // publishes the child to lock-free readers
+        return count;
+    }
+
+    /**
+     * Adds the child for untried {@code action}, picked by {@link #selectIndex()}, and
+     * returns its index. Returns -1 if another worker expanded that action first.
+     * Links a node from {@code table} like {@link #expand(TranspositionTable)}.
+     */
+    synchronized int expandAction(int action, TranspositionTable<S> table) {
+        int count = child_count;
+        for (int i = count; i < actions.length; i++) {
+            if (actions[i] == action) {
+                return expandAt(i, table);
+            }
+        }
+        return -1;
     }
 
     public double simulate() {
-        Outcome out = game.valueAndTerminated(state, action_taken);
-        double value = game.opponentValue(out.value);
+        return simulate(null);
+    }
 
+    /** Like {@link #simulate()}, recording the rollout's moves in {@code trace} if it is not null. */
+    double simulate(RolloutTrace trace) {
+        // Values are from the perspective of the player to move in this node's state
+        Outcome out = game.valueAndTerminated(state, action_taken);
         if (out.terminal) {
-            return value;
+            return out.value;
         }
+        return rollout(game, stateCopy(state), trace);
+    }
+
+    /** Random playout from a non-terminal state, valued for the player to move in it. */
+    static <S> double rollout(MctsGame<S> game, S state) {
+        return rollout(game, state, null);
+    }
 
-        S rollout_state = stateCopy(state);
+    static <S> double rollout(MctsGame<S> game, S state, RolloutTrace trace) {
+        if (game instanceof FastRollout) {
+            @SuppressWarnings("unchecked")
+            FastRollout<S> fast = (FastRollout<S>) game;
+            return fast.rollout(state, trace);
+        }
+
+        S rollout_state = state;
         int rollout_player = 1;
         while(true) {
             boolean[] valid_moves = game.getValidMoves(rollout_state);
             int action = pickRandomTrue(valid_moves);
+            if (trace != null) trace.add(action);
             rollout_state = game.getNextState(rollout_state, action, rollout_player);
             Outcome o2 = game.valueAndTerminated(rollout_state, action);
             if (o2.terminal) {
-                double v;
-                if (rollout_player == -1) {
-                    v = o2.value;
-                } else {
-                    v = game.opponentValue(o2.value);
-                }
-                return v;
+                // rollout_state keeps the starting perspective, so o2.value already is ours
+                return o2.value;
             }
             rollout_player = game.opponent(rollout_player);
         }
     }
 
     public void backpropagate(double value){
-        this.value_sum += value;
-        this.visit_count += 1;
-
-        double flipped_value = game.opponentValue(value);
-        if (parent != null) {
-            parent.backpropagate(flipped_value);
+        for (Node<S> node = this; node != null; node = node.parent) {
+            node.update(value, 0);
+            value = game.opponentValue(value);
         }
     }
 
-    private int pickRandomExpandable() {
-        int count = 0;
-        for (int i = 0; i < expandable_moves.length; i++) if (expandable_moves[i]) count++;
-        if (count == 0) throw new IllegalStateException("No expandable moves left");
+    /** Records one visit with {@code value} and takes back {@code virtualLoss}. */
+    void update(double value, int virtualLoss) {
+        addValue(value);
+        addSquare(value * value);
+        VISIT_COUNT.getAndAdd(this, 1);
+        if (virtualLoss != 0) {
+            VIRTUAL_LOSS.getAndAdd(this, -virtualLoss);
+        }
+    }
 
-        int k = ThreadLocalRandom.current().nextInt(count);
-        for (int i = 0; i < expandable_moves.length; i++) {
-            if (expandable_moves[i]) {
-                if (k == 0) return i;
-                k--;
-            }
+    public void addVirtualLoss(int virtualLoss) {
+        if (virtualLoss != 0) {
+            VIRTUAL_LOSS.getAndAdd(this, virtualLoss);
         }
-        throw new AssertionError("unreachable");
     }
 
-    private int pickRandomTrue(boolean[] bits) {
+    /** Counts one playout in which this node's move was played later by the same side. */
+    void updateAmaf(double value) {
+        double current;
+        do {
+            current = amaf_value;
+        } while (!AMAF_VALUE.weakCompareAndSet(this, current, current + value));
+        AMAF_VISITS.getAndAdd(this, 1);
+    }
+
+    private void addValue(double value) {
+        double current;
+        do {
+            current = value_sum;
+        } while (!VALUE_SUM.weakCompareAndSet(this, current, current + value));
+    }
+
+    private void addSquare(double square) {
+        double current;
+        do {
+            current = value_sq_sum;
+        } while (!VALUE_SQ_SUM.weakCompareAndSet(this, current, current + square));
+    }
+
+    private static int pickRandomTrue(boolean[] bits) {
         int count = 0;
         for (boolean b : bits) if (b) count++;
         int k = ThreadLocalRandom.current().nextInt(count);
@@ -0,0 +1,18 @@
+package AI.mcts;
+
+/**
+ * Prior-guided rule used by AlphaZero: {@code c * P * sqrt(N) / (1 + n)}. Without
+ * priors every move gets the same P, which makes it a UCT variant with a
+ * {@code sqrt(N)} instead of {@code sqrt(ln N)} bonus.
+ */
+public final class PuctPolicy implements SelectionPolicy {
+    @Override
+    public double parentTerm(int parentVisits, double c) {
+        return c * Math.sqrt(parentVisits);
+    }
+
+    @Override
+    public double exploration(Node<?> child, int visits, double prior, double parentTerm, double c) {
+        return parentTerm * prior / (1 + visits);
+    }
+}
@@ -0,0 +1,36 @@
+package AI.mcts;
+
+import java.util.Arrays;
+
+/**
+ * Actions played by one rollout, in order; the first one is by the side to move at
+ * the rollout's start, after that the sides alternate. Owned by one worker and
+ * reused for every iteration; feeds the RAVE statistics (see {@link MctsArgs#raveEquivalence}).
+ */
+public final class RolloutTrace {
+    private int[] actions;
+    private int size;
+
+    RolloutTrace(int capacity) {
+        actions = new int[Math.max(capacity, 8)];
+    }
+
+    public void add(int action) {
+        if (size == actions.length) {
+            actions = Arrays.copyOf(actions, size * 2);
+        }
+        actions[size++] = action;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int get(int i) {
+        return actions[i];
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
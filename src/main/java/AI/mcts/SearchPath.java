@@ -0,0 +1,109 @@
+package AI.mcts;
+
+import java.util.Arrays;
+
+/**
+ * Nodes visited by one iteration, root first. Each worker owns one instance and
+ * reuses it for every iteration, so selection and backpropagation allocate nothing
+ * and backpropagation is a loop instead of a walk up the {@code parent} chain.
+ */
+final class SearchPath<S> {
+    private Node<S>[] nodes;
+    // actions[i] led from nodes[i - 1] to nodes[i]; actions[0] is unused
+    private int[] actions;
+    private int size;
+    private final RolloutTrace trace;
+    // RAVE: played[p][a] == stamp if action a was played at a sequence position of parity p
+    private final int[][] played;
+    private int stamp;
+
+    @SuppressWarnings("unchecked")
+    SearchPath(int capacity, int actionSize) {
+        nodes = (Node<S>[]) new Node[Math.max(capacity, 8)];
+        actions = new int[nodes.length];
+        trace = new RolloutTrace(actionSize);
+        played = new int[2][actionSize];
+    }
+
+    void clear() {
+        size = 0;
+        trace.clear();
+    }
+
+    /** Appends {@code node}, reached with {@code action} (ignored for the root). */
+    void add(Node<S> node, int action) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            actions = Arrays.copyOf(actions, size * 2);
+        }
+        actions[size] = action;
+        nodes[size++] = node;
+    }
+
+    /** Moves of this iteration's rollout, filled by {@link Node#simulate(RolloutTrace)}. */
+    RolloutTrace trace() {
+        return trace;
+    }
+
+    int size() {
+        return size;
+    }
+
+    Node<S> get(int i) {
+        return nodes[i];
+    }
+
+    Node<S> leaf() {
+        return nodes[size - 1];
+    }
+
+    /**
+     * Updates the AMAF statistics for this iteration. The tree moves followed by the
+     * rollout moves form one sequence with alternating sides; every child of a path
+     * node whose action appears later in that sequence, played by the path node's
+     * side to move, counts the playout. Call before {@link #backpropagate}.
+     *
+     * @param value result for the player to move at the leaf, as for backpropagate
+     */
+    void updateAmaf(MctsGame<S> game, double value) {
+        if (++stamp == 0) {
+            Arrays.fill(played[0], 0);
+            Arrays.fill(played[1], 0);
+            stamp = 1;
+        }
+        int last = size - 1;
+        // the move at sequence position j (1-based) leads into depth j; rollout moves follow the leaf
+        for (int k = 0; k < trace.size(); k++) {
+            played[(last + 1 + k) & 1][trace.get(k)] = stamp;
+        }
+        double childValue = game.opponentValue(value);
+        for (int d = last; d >= 0; d--) {
+            if (d < last) {
+                played[(d + 1) & 1][actions[d + 1]] = stamp;
+            }
+            int[] mine = played[(d + 1) & 1];
+            Node<S> node = nodes[d];
+            int count = node.childCount();
+            for (int i = 0; i < count; i++) {
+                if (mine[node.childAction(i)] == stamp) {
+                    node.child(i).updateAmaf(childValue);
+                }
+            }
+            childValue = game.opponentValue(childValue);
+        }
+    }
+
+    /**
+     * Adds {@code value} to the leaf and alternates its sign towards the root, taking
+     * back {@code virtualLoss} from every node on the way.
+     */
+    void backpropagate(MctsGame<S> game, double value, int virtualLoss) {
+        for (int i = size - 1; i >= 0; i--) {
+            nodes[i].update(value, virtualLoss);
+            value = game.opponentValue(value);
+        }
+        // drop references so finished trees can be collected
+        Arrays.fill(nodes, 0, size, null);
+        size = 0;
+    }
+}
@@ -0,0 +1,23 @@
+package AI.mcts;
+
+/**
+ * Cancels one search. Pass a fresh token to {@link MCTS#search(Object, SearchToken)}
+ * or {@link MCTS#searchUntil(Object, long, SearchToken)}; {@link #cancel()} then
+ * stops that search, whether it is called before the search starts or while it
+ * runs, and never affects any other search.
+ */
+public final class SearchToken {
+    private volatile boolean cancelled;
+
+    /**
+     * Stops the search this token was given to; it returns the policy gathered so
+     * far. Safe from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
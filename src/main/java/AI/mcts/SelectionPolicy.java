@@ -0,0 +1,29 @@
+package AI.mcts;
+
+/**
+ * Exploration rule used by {@link Node#select()}. The score of a child is its mean
+ * value for the parent's player (0..1, blended with RAVE if enabled) plus
+ * {@link #exploration}. Chosen with {@link MctsArgs#withSelection}.
+ *
+ * <p>Everything that only depends on the parent goes into {@link #parentTerm}, which
+ * is evaluated once per selection step rather than once per child.
+ */
+public interface SelectionPolicy {
+    SelectionPolicy UCT = new UctPolicy();
+    SelectionPolicy UCB1_TUNED = new Ucb1TunedPolicy();
+    SelectionPolicy PUCT = new PuctPolicy();
+
+    /** @param parentVisits visits of the node selecting among its children */
+    double parentTerm(int parentVisits, double c);
+
+    /**
+     * @param child       the candidate, for statistics beyond its visit count; null
+     *                    for a move of an evaluated node that has no child yet
+     *                    (only with {@link #PUCT}, see {@link MCTS})
+     * @param visits      the child's visits including pending virtual losses
+     * @param prior       probability of the child's move under the parent's prior
+     *                    (uniform unless the node was given priors)
+     * @param parentTerm  value of {@link #parentTerm} for this step
+     */
+    double exploration(Node<?> child, int visits, double prior, double parentTerm, double c);
+}
@@ -0,0 +1,84 @@
+package AI.mcts;
+
+import java.util.Arrays;
+
+/**
+ * Bounded map from position key to the tree node already searching that position,
+ * so that move orders reaching the same position share one node (the tree becomes
+ * a DAG).
+ *
+ * <p>Sizing: the table is a fixed array of 4-way buckets fitted into the
+ * configured number of megabytes (a slot is a {@code long} key plus a reference).
+ * Eviction: when a bucket is full, the entry whose node has the fewest visits is
+ * replaced, so well-searched positions stay shared. An evicted node stays in the
+ * tree; only later transpositions to it are no longer found.
+ */
+final class TranspositionTable<S> {
+    private static final int WAYS = 4;
+    private static final int BYTES_PER_SLOT = 16;
+    private static final int LOCK_STRIPES = 64;
+
+    private final MctsGame<S> game;
+    private final long[] keys;
+    private final Node<S>[] nodes;
+    private final int bucketMask;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    @SuppressWarnings("unchecked")
+    TranspositionTable(MctsGame<S> game, int megabytes) {
+        this.game = game;
+        long slots = ((long) megabytes << 20) / BYTES_PER_SLOT;
+        int buckets = Integer.highestOneBit((int) Math.max(1, Math.min(slots / WAYS, 1 << 24)));
+        this.keys = new long[buckets * WAYS];
+        this.nodes = (Node<S>[]) new Node[buckets * WAYS];
+        this.bucketMask = buckets - 1;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /** The node stored for {@code state}, or {@code null}. Hits are confirmed with {@code equals}. */
+    Node<S> get(S state) {
+        long key = game.positionKey(state);
+        int bucket = bucket(key);
+        synchronized (locks[bucket & (LOCK_STRIPES - 1)]) {
+            int base = bucket * WAYS;
+            for (int i = base; i < base + WAYS; i++) {
+                Node<S> node = nodes[i];
+                if (node != null && keys[i] == key && node.state.equals(state)) {
+                    return node;
+                }
+            }
+        }
+        return null;
+    }
+
+    void put(Node<S> node) {
+        long key = game.positionKey(node.state);
+        int bucket = bucket(key);
+        synchronized (locks[bucket & (LOCK_STRIPES - 1)]) {
+            int base = bucket * WAYS;
+            int victim = base;
+            for (int i = base; i < base + WAYS; i++) {
+                if (nodes[i] == null || keys[i] == key) {
+                    victim = i;
+                    break;
+                }
+                if (nodes[i].visit_count < nodes[victim].visit_count) {
+                    victim = i;
+                }
+            }
+            keys[victim] = key;
+            nodes[victim] = node;
+        }
+    }
+
+    /** Empties the table; only call between searches. */
+    void clear() {
+        Arrays.fill(nodes, null);
+    }
+
+    private int bucket(long key) {
+        return (int) (key ^ (key >>> 32)) & bucketMask;
+    }
+}
@@ -0,0 +1,24 @@
+package AI.mcts;
+
+/**
+ * UCB1-Tuned (Auer et al.): the UCB1 bonus scaled by an upper bound on the variance
+ * of the child's results, {@code c * sqrt(ln N / n * min(1/4, var + sqrt(2 ln N / n)))}
+ * with results on a 0..1 scale. {@code c = 1} is the published rule.
+ */
+public final class Ucb1TunedPolicy implements SelectionPolicy {
+    @Override
+    public double parentTerm(int parentVisits, double c) {
+        return Math.log(Math.max(1, parentVisits));
+    }
+
+    @Override
+    public double exploration(Node<?> child, int visits, double prior, double parentTerm, double c) {
+        int n = Math.max(1, visits);
+        int seen = Math.max(1, child.visit_count);
+        double mean = child.value_sum / seen;
+        // values are in -1..1, so the variance on a 0..1 scale is a quarter of theirs
+        double variance = Math.max(0.0, child.value_sq_sum / seen - mean * mean) / 4.0;
+        double bound = Math.min(0.25, variance + Math.sqrt(2.0 * parentTerm / n));
+        return c * Math.sqrt(parentTerm / n * bound);
+    }
+}
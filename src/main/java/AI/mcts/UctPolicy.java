@@ -0,0 +1,14 @@
+package AI.mcts;
+
+/** UCB1 as in plain UCT: {@code c * sqrt(ln N / n)}. */
+public final class UctPolicy implements SelectionPolicy {
+    @Override
+    public double parentTerm(int parentVisits, double c) {
+        return c * Math.sqrt(Math.log(Math.max(1, parentVisits)));
+    }
+
+    @Override
+    public double exploration(Node<?> child, int visits, double prior, double parentTerm, double c) {
+        return parentTerm / Math.sqrt(Math.max(1, visits));
+    }
+}
@@ -0,0 +1,151 @@
+package AI.nn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import AI.hex.HexState;
+import AI.mcts.Evaluation;
+import AI.mcts.LeafEvaluator;
+
+/**
+ * Collects leaf positions from many threads (tree-parallel search workers, or many
+ * self-play games sharing one network) and evaluates them in batches on a single
+ * inference thread.
+ *
+ * <p>A batch is sent as soon as it holds {@code maxBatch} positions, or when
+ * {@code maxWaitMicros} have passed since its first position arrived. Callers of
+ * {@link #evaluate} block until their result is ready; {@link #submit} returns a
+ * future instead. If inference throws an {@link Error} the batch fails with it and
+ * the evaluator closes itself, failing whatever is still queued.
+ */
+public final class BatchingEvaluator implements LeafEvaluator<HexState>, AutoCloseable {
+    private final ResNetEvaluator network;
+    private final int max_batch;
+    private final long max_wait_nanos;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Thread worker;
+    private volatile boolean closed;
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong positions = new AtomicLong();
+
+    public BatchingEvaluator(ResNetEvaluator network, int maxBatch, long maxWaitMicros) {
+        if (maxBatch < 1) throw new IllegalArgumentException("maxBatch must be >= 1");
+        if (maxWaitMicros < 0) throw new IllegalArgumentException("maxWaitMicros must be >= 0");
+        this.network = network;
+        this.max_batch = maxBatch;
+        this.max_wait_nanos = maxWaitMicros * 1_000L;
+        this.worker = new Thread(this::run, "nn-batcher");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public Evaluation evaluate(HexState s) {
+        return submit(s).join();
+    }
+
+    /** Queues {@code s} for the next batch. */
+    public CompletableFuture<Evaluation> submit(HexState s) {
+        if (closed) throw new IllegalStateException("evaluator is closed");
+        Request request = new Request(s);
+        queue.add(request);
+        if (closed && queue.remove(request)) {
+            // close() ran between the check and the add and may already have drained the queue
+            request.result.completeExceptionally(new IllegalStateException("evaluator is closed"));
+        }
+        return request.result;
+    }
+
+    /** Mean number of positions per forward pass so far. */
+    public double averageBatchSize() {
+        long b = batches.get();
+        return b == 0 ? 0.0 : positions.get() / (double) b;
+    }
+
+    /** Stops the inference thread; queued requests fail. */
+    @Override
+    public void close() {
+        closed = true;
+        worker.interrupt();
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Request r; (r = queue.poll()) != null; ) {
+            r.result.completeExceptionally(new IllegalStateException("evaluator is closed"));
+        }
+    }
+
+    private void run() {
+        List<Request> batch = new ArrayList<>(max_batch);
+        HexState[] states = new HexState[max_batch];
+        try {
+            while (!closed) {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + max_wait_nanos;
+                while (batch.size() < max_batch) {
+                    // take what is already queued, then wait out the rest of the window
+                    if (queue.drainTo(batch, max_batch - batch.size()) > 0) continue;
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) break;
+                    Request next = queue.poll(left, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                evaluate(batch, states);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // close() was called
+        } finally {
+            // also reached when an Error ends the thread: nobody is left to serve the queue
+            closed = true;
+            IllegalStateException stopped = new IllegalStateException("evaluator is closed");
+            for (Request r : batch) {
+                r.result.completeExceptionally(stopped);
+            }
+            for (Request r; (r = queue.poll()) != null; ) {
+                r.result.completeExceptionally(stopped);
+            }
+        }
+    }
+
+    private void evaluate(List<Request> batch, HexState[] states) {
+        int count = batch.size();
+        for (int i = 0; i < count; i++) {
+            states[i] = batch.get(i).state;
+        }
+        try {
+            Evaluation[] results = network.evaluateBatch(states, count);
+            for (int i = 0; i < count; i++) {
+                batch.get(i).result.complete(results[i]);
+            }
+        } catch (Throwable e) {
+            for (Request r : batch) {
+                r.result.completeExceptionally(e);
+            }
+            if (e instanceof Error) {
+                throw (Error) e; // run() fails the queued requests on the way out
+            }
+        }
+        batches.incrementAndGet();
+        positions.addAndGet(count);
+        Arrays.fill(states, 0, count, null);
+    }
+
+    private static final class Request {
+        final HexState state;
+        final CompletableFuture<Evaluation> result = new CompletableFuture<>();
+
+        Request(HexState state) {
+            this.state = state;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package AI.nn;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import AI.hex.HexState;
+import AI.hex.HexSymmetry;
+import AI.mcts.Evaluation;
+import AI.mcts.LeafEvaluator;
+
+/**
+ * Bounded LRU cache in front of another evaluator, keyed by the Zobrist hash of the
+ * position. With {@code canonical} set, symmetric positions share one entry: the
+ * evaluation is stored for the canonical form (see {@link HexSymmetry#canonical})
+ * and its policy is mapped back onto the queried position's cells on a hit.
+ *
+ * <p>The entries are split over striped, individually locked access-order maps, so
+ * concurrent search workers rarely wait for each other. Cached policy arrays are
+ * shared between hits and must not be modified. Keys are 64-bit hashes, so two
+ * different positions could in principle collide.
+ */
+public final class EvaluationCache implements LeafEvaluator<HexState> {
+    private static final int STRIPES = 16;
+
+    private final LeafEvaluator<HexState> inner;
+    private final boolean canonical;
+    private final Map<Long, Evaluation>[] stripes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /** @param capacity maximum number of cached positions */
+    @SuppressWarnings("unchecked")
+    public EvaluationCache(LeafEvaluator<HexState> inner, int capacity, boolean canonical) {
+        if (capacity < STRIPES) throw new IllegalArgumentException("capacity must be >= " + STRIPES);
+        this.inner = inner;
+        this.canonical = canonical;
+        int perStripe = capacity / STRIPES;
+        this.stripes = new Map[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new LinkedHashMap<Long, Evaluation>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Evaluation> eldest) {
+                    return size() > perStripe;
+                }
+            };
+        }
+    }
+
+    @Override
+    public Evaluation evaluate(HexState s) {
+        HexSymmetry symmetry = canonical ? HexSymmetry.canonical(s) : HexSymmetry.IDENTITY;
+        long key = s.hashUnder(symmetry);
+        Map<Long, Evaluation> stripe = stripes[(int) (key ^ (key >>> 32)) & (STRIPES - 1)];
+        Evaluation cached;
+        synchronized (stripe) {
+            cached = stripe.get(key);
+        }
+        if (cached != null) {
+            hits.increment();
+            return symmetry == HexSymmetry.IDENTITY ? cached : mapPolicy(cached, symmetry, s.n, false);
+        }
+        misses.increment();
+        // evaluated outside the lock; two workers missing on the same position both evaluate it
+        Evaluation fresh = inner.evaluate(s);
+        Evaluation stored = symmetry == HexSymmetry.IDENTITY ? fresh : mapPolicy(fresh, symmetry, s.n, true);
+        synchronized (stripe) {
+            stripe.put(key, stored);
+        }
+        return fresh;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    /** Fraction of lookups answered from the cache, 0 before the first lookup. */
+    public double hitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : h / (double) total;
+    }
+
+    public void clear() {
+        for (Map<Long, Evaluation> stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    /**
+     * Moves a policy between a position's cells and its canonical image's cells:
+     * cell {@code a} of the position is cell {@code symmetry.mapAction(a)} of the image.
+     */
+    private static Evaluation mapPolicy(Evaluation e, HexSymmetry symmetry, int n, boolean toCanonical) {
+        double[] policy = new double[e.policy.length];
+        for (int a = 0; a < policy.length; a++) {
+            int image = symmetry.mapAction(a, n);
+            if (toCanonical) {
+                policy[image] = e.policy[a];
+            } else {
+                policy[a] = e.policy[image];
+            }
+        }
+        return new Evaluation(policy, e.value);
+    }
+}
@@ -0,0 +1,109 @@
+package AI.nn;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import AI.hex.HexState;
+import Game.Board;
+import Game.Color;
+import ai.djl.ndarray.NDArray;
+import ai.djl.ndarray.NDManager;
+import ai.djl.ndarray.types.DataType;
+import ai.djl.ndarray.types.Shape;
+
+/**
+ * Writes {@link ResNet} input planes for a batch of positions into one direct
+ * buffer that is allocated once and reused. The planes are the stones of the player
+ * to move, the opponent's stones, and the empty cells.
+ *
+ * <p>The network always sees the side to move as the player connecting top and
+ * bottom. For positions where that side is black (left/right), the board is
+ * transposed, and {@link #toAction} maps policy indices back to real cells.
+ *
+ * <p>The arrays returned by {@code encode} are created over that buffer without a
+ * copy, so each one is only valid until the next {@code encode} call. Not
+ * thread-safe; one encoder per inference thread.
+ */
+public final class HexEncoder {
+    private final NDManager manager;
+    private final int n;
+    private final int cells;
+    // native-order float32 planes, handed to DJL as bytes
+    private ByteBuffer planes;
+    private int capacity;
+
+    /**
+     * @param manager  long-lived manager that owns the input buffer
+     * @param maxBatch batch size to allocate for up front; larger batches grow the buffer
+     */
+    public HexEncoder(NDManager manager, int n, int maxBatch) {
+        this.manager = manager;
+        this.n = n;
+        this.cells = n * n;
+        allocate(Math.max(1, maxBatch));
+    }
+
+    /** (count, 3, n, n) input for {@code states[0..count)}, created in {@code scope}. */
+    public NDArray encode(HexState[] states, int count, NDManager scope) {
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            HexState s = states[i];
+            boolean transpose = !s.plusIsRed;
+            int base = i * 3 * cells;
+            for (int a = 0; a < cells; a++) {
+                int v = s.cell(a);
+                put(base, transpose ? transpose(a) : a, v > 0 ? 0 : v < 0 ? 1 : 2);
+            }
+        }
+        return input(count, scope);
+    }
+
+    /** (1, 3, n, n) input for a live game board with {@code toMove} to play. */
+    public NDArray encode(Board board, Color toMove, NDManager scope) {
+        if (toMove == Color.EMPTY) throw new IllegalArgumentException("toMove must be RED or BLACK");
+        ensureCapacity(1);
+        boolean transpose = toMove == Color.BLACK;
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < n; c++) {
+                Color cell = board.getCell(r, c);
+                int a = r * n + c;
+                put(0, transpose ? transpose(a) : a, cell == Color.EMPTY ? 2 : cell == toMove ? 0 : 1);
+            }
+        }
+        return input(1, scope);
+    }
+
+    /** Cell that policy index {@code index} of the network output refers to in {@code s}. */
+    public int toAction(HexState s, int index) {
+        return s.plusIsRed ? index : transpose(index);
+    }
+
+    /** Writes a one-hot cell: 1 in {@code plane}, 0 in the other two. */
+    private void put(int base, int cell, int plane) {
+        for (int p = 0; p < 3; p++) {
+            planes.putFloat((base + p * cells + cell) * Float.BYTES, p == plane ? 1f : 0f);
+        }
+    }
+
+    private int transpose(int a) {
+        return (a % n) * n + a / n;
+    }
+
+    private NDArray input(int count, NDManager scope) {
+        // the direct buffer itself, not a view of it, so DJL can use it without a copy
+        ByteBuffer view = planes.duplicate().order(ByteOrder.nativeOrder());
+        view.position(0).limit(count * 3 * cells * Float.BYTES);
+        return scope.create(view, new Shape(count, 3, n, n), DataType.FLOAT32);
+    }
+
+    private void ensureCapacity(int count) {
+        if (count > capacity) {
+            allocate(Math.max(count, capacity * 2));
+        }
+    }
+
+    private void allocate(int batch) {
+        planes = manager.allocateDirect(batch * 3 * cells * Float.BYTES).order(ByteOrder.nativeOrder());
+        capacity = batch;
+    }
+}
@@ -0,0 +1,60 @@
+package AI.nn;
+
+import AI.hex.HexState;
+import AI.mcts.Evaluation;
+import AI.mcts.LeafEvaluator;
+import ai.djl.ndarray.NDArray;
+import ai.djl.ndarray.NDList;
+import ai.djl.ndarray.NDManager;
+import ai.djl.training.ParameterStore;
+
+/**
+ * Leaf evaluator for {@link AI.mcts.MCTS} backed by a {@link ResNet}: the policy head
+ * (after softmax) becomes the move prior and the value head the leaf value.
+ *
+ * <p>The network must already be initialised or loaded. {@link #evaluate} runs one
+ * position per forward pass and calls are serialised; wrap it in a
+ * {@link BatchingEvaluator} to batch concurrent requests.
+ */
+public final class ResNetEvaluator implements LeafEvaluator<HexState> {
+    private final ResNet net;
+    private final NDManager manager;
+    private final ParameterStore parameter_store;
+    private final HexEncoder encoder;
+
+    /**
+     * @param manager long-lived manager for the network's device; every evaluation
+     *                works in a sub-manager of it, which is closed afterwards
+     */
+    public ResNetEvaluator(ResNet net, NDManager manager, int n) {
+        this.net = net;
+        this.manager = manager;
+        this.parameter_store = new ParameterStore(manager, false);
+        this.encoder = new HexEncoder(manager, n, 1);
+    }
+
+    @Override
+    public Evaluation evaluate(HexState s) {
+        return evaluateBatch(new HexState[] {s}, 1)[0];
+    }
+
+    /** Runs {@code states[0..count)} through the network as one (count, 3, n, n) batch. */
+    synchronized Evaluation[] evaluateBatch(HexState[] states, int count) {
+        try (NDManager scope = manager.newSubManager()) {
+            NDArray input = encoder.encode(states, count, scope);
+            NDList out = net.forward(parameter_store, new NDList(input), false);
+            float[] policy = out.get(0).softmax(-1).toFloatArray();   // (count, actionSize)
+            float[] value = out.get(1).toFloatArray();                // (count, 1)
+            int actions = policy.length / count;
+            Evaluation[] result = new Evaluation[count];
+            for (int i = 0; i < count; i++) {
+                double[] prior = new double[actions];
+                for (int k = 0; k < actions; k++) {
+                    prior[encoder.toAction(states[i], k)] = policy[i * actions + k];
+                }
+                result[i] = new Evaluation(prior, value[i]);
+            }
+            return result;
+        }
+    }
+}
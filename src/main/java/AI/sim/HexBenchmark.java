@@ -0,0 +1,184 @@
+// package AI.sim;
+package AI.sim;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import AI.hex.HexMctsAdapter;
+import AI.hex.HexState;
+import Game.Board;
+import Game.Color;
+import Game.UnionFind;
+
+/**
+ * Micro-benchmarks for the Hex search hot paths. Run with
+ * {@code mvn exec:java -Dexec.mainClass=AI.sim.HexBenchmark}.
+ */
+public final class HexBenchmark {
+    private static final int GAMES = 200;
+    private static final int ROLLOUTS = 100_000;
+
+    public static void main(String[] args) {
+        for (int n : new int[] {7, 11, 13}) {
+            System.out.printf("--- %dx%d ---%n", n, n);
+            // every benchmark runs twice; the first round is JIT warm-up
+            for (int round = 0; round < 2; round++) {
+                boolean print = round == 1;
+                winChecks(n, print);
+                rollouts(n, print);
+                unionFinds(n, print);
+            }
+        }
+    }
+
+    /** Cost of deciding "did this move end the game?" over random games, per move. */
+    private static void winChecks(int n, boolean print) {
+        HexMctsAdapter unionFind = new HexMctsAdapter(n, HexMctsAdapter.RolloutMode.PLY_BY_PLY,
+                HexMctsAdapter.WinCheck.UNION_FIND);
+        HexMctsAdapter floodFill = new HexMctsAdapter(n, HexMctsAdapter.RolloutMode.PLY_BY_PLY,
+                HexMctsAdapter.WinCheck.FLOOD_FILL);
+
+        long replayNanos = 0, unionFindNanos = 0, floodFillNanos = 0;
+        int moves = 0, sink = 0;
+        Random random = new Random(42);
+        for (int g = 0; g < GAMES; g++) {
+            HexState uf = new HexState(n, new int[n * n], true);
+            HexState ff = uf;
+            while (true) {
+                int action = randomEmpty(uf, random);
+
+                long t0 = System.nanoTime();
+                uf = unionFind.getNextState(uf, action, 1);
+                boolean ufTerminal = unionFind.valueAndTerminated(uf, action).terminal;
+                long t1 = System.nanoTime();
+                ff = floodFill.getNextState(ff, action, 1);
+                boolean ffTerminal = floodFill.valueAndTerminated(ff, action).terminal;
+                long t2 = System.nanoTime();
+                boolean replayTerminal = replayIntoBoard(uf).isTerminal();
+                long t3 = System.nanoTime();
+
+                unionFindNanos += t1 - t0;
+                floodFillNanos += t2 - t1;
+                replayNanos += t3 - t2;
+                moves++;
+                if (ufTerminal != ffTerminal || ufTerminal != replayTerminal) {
+                    throw new IllegalStateException("win checks disagree");
+                }
+                if (ufTerminal) {
+                    sink += uf.winner;
+                    break;
+                }
+                uf = uf.flippedPerspective();
+                ff = ff.flippedPerspective();
+            }
+        }
+        if (print) {
+            System.out.printf("win check  Board replay %8.0f ns/move%n", replayNanos / (double) moves);
+            System.out.printf("win check  union-find   %8.0f ns/move%n", unionFindNanos / (double) moves);
+            System.out.printf("win check  flood fill   %8.0f ns/move   (%d)%n", floodFillNanos / (double) moves, sink);
+        }
+    }
+
+    /** Random playouts from the empty board, per playout. */
+    private static void rollouts(int n, boolean print) {
+        HexState empty = new HexState(n, new int[n * n], true);
+        for (HexMctsAdapter.RolloutMode mode : HexMctsAdapter.RolloutMode.values()) {
+            HexMctsAdapter game = new HexMctsAdapter(n, mode);
+            double sum = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < ROLLOUTS; i++) {
+                sum += game.rollout(empty);
+            }
+            long nanos = System.nanoTime() - start;
+            if (print) {
+                System.out.printf("rollout    %-12s %8.0f ns/playout (mean %+.3f)%n",
+                        mode, nanos / (double) ROLLOUTS, sum / ROLLOUTS);
+            }
+        }
+    }
+
+    /**
+     * Game.UnionFind on its own: random full games fed stone by stone with a win check
+     * per move, once path-halving and once undoable (no path halving), plus the cost
+     * of a mid-game snapshot.
+     */
+    private static void unionFinds(int n, boolean print) {
+        int cells = n * n;
+        int[][] deltas = { {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0} };
+        Random random = new Random(7);
+        int[] order = new int[cells];
+        Color[] colours = new Color[cells];
+        long[] nanos = new long[2];
+        long snapshotNanos = 0;
+        int moves = 0, sink = 0;
+        for (int g = 0; g < GAMES; g++) {
+            for (int i = 0; i < cells; i++) order[i] = i;
+            for (int i = cells - 1; i > 0; i--) {
+                int k = random.nextInt(i + 1);
+                int t = order[i]; order[i] = order[k]; order[k] = t;
+            }
+            for (int variant = 0; variant < 2; variant++) {
+                UnionFind uf = new UnionFind(cells + 4, variant == 1);
+                Arrays.fill(colours, Color.EMPTY);
+                long start = System.nanoTime();
+                for (int i = 0; i < cells; i++) {
+                    int a = order[i], r = a / n, c = a % n;
+                    Color stone = i % 2 == 0 ? Color.RED : Color.BLACK;
+                    colours[a] = stone;
+                    for (int[] d : deltas) {
+                        int nr = r + d[0], nc = c + d[1];
+                        if (nr >= 0 && nc >= 0 && nr < n && nc < n && colours[nr * n + nc] == stone) {
+                            uf.union(a, nr * n + nc);
+                        }
+                    }
+                    if (stone == Color.RED) {
+                        if (r == 0) uf.union(a, cells);
+                        if (r == n - 1) uf.union(a, cells + 1);
+                        if (uf.connected(cells, cells + 1)) break;
+                    } else {
+                        if (c == 0) uf.union(a, cells + 2);
+                        if (c == n - 1) uf.union(a, cells + 3);
+                        if (uf.connected(cells + 2, cells + 3)) break;
+                    }
+                    if (variant == 0) moves++;
+                }
+                nanos[variant] += System.nanoTime() - start;
+                if (variant == 0) {
+                    long t0 = System.nanoTime();
+                    sink += uf.snapshot().find(0);
+                    snapshotNanos += System.nanoTime() - t0;
+                }
+            }
+        }
+        if (print) {
+            System.out.printf("UnionFind  path halving %8.0f ns/move%n", nanos[0] / (double) moves);
+            System.out.printf("UnionFind  undoable     %8.0f ns/move%n", nanos[1] / (double) moves);
+            System.out.printf("UnionFind  snapshot     %8.0f ns   (%d)%n", snapshotNanos / (double) GAMES, sink);
+        }
+    }
+
+    private static int randomEmpty(HexState s, Random random) {
+        int cells = s.n * s.n;
+        while (true) {
+            int a = random.nextInt(cells);
+            if (s.isEmpty(a)) return a;
+        }
+    }
+
+    /** What valueAndTerminated used to do: rebuild a Board from the state on every call. */
+    private static Board replayIntoBoard(HexState s) {
+        int n = s.n;
+        Board b = new Board(n);
+        for (int idx = 0; idx < n * n; idx++) {
+            int v = s.cell(idx);
+            if (v == 0) continue;
+            int r = idx / n, c = idx % n;
+            if ((v == +1) == s.plusIsRed) {
+                b.getMoveRed(r, c, Color.RED);
+            } else {
+                b.getMoveBlack(r, c, Color.BLACK);
+            }
+        }
+        return b;
+    }
+}
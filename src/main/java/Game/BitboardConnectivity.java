@@ -0,0 +1,134 @@
+package Game;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Win detection on bitboards by flood fill: starting from the stones on one edge,
+ * the frontier is repeatedly dilated by the six hex neighbour shifts and masked
+ * with the player's own stones, until it touches the opposite edge or stops growing.
+ *
+ * <p>Cell {@code row * n + column} is bit {@code index & 63} of word {@code index >>> 6}.
+ * Each step works on whole 64-bit words, so no union-find has to be fed stone by stone.
+ */
+public final class BitboardConnectivity {
+    private static final ConcurrentHashMap<Integer, Masks> MASKS = new ConcurrentHashMap<>();
+
+    private BitboardConnectivity() {}
+
+    /** Number of {@code long} words needed for an n×n board. */
+    public static int words(int n) {
+        return (n * n + 63) >>> 6;
+    }
+
+    /** RED's condition: do {@code stones} connect the top and bottom rows? */
+    public static boolean connectsTopBottom(int n, long[] stones) {
+        return connectsTopBottom(n, stones, new long[stones.length], new long[stones.length]);
+    }
+
+    /** Same as {@link #connectsTopBottom(int, long[])} using two caller-owned scratch arrays. */
+    public static boolean connectsTopBottom(int n, long[] stones, long[] frontier, long[] next) {
+        Masks m = masks(n);
+        return connects(n, m, stones, m.top, m.bottom, frontier, next);
+    }
+
+    /** BLACK's condition: do {@code stones} connect the left and right columns? */
+    public static boolean connectsLeftRight(int n, long[] stones) {
+        return connectsLeftRight(n, stones, new long[stones.length], new long[stones.length]);
+    }
+
+    /** Same as {@link #connectsLeftRight(int, long[])} using two caller-owned scratch arrays. */
+    public static boolean connectsLeftRight(int n, long[] stones, long[] frontier, long[] next) {
+        Masks m = masks(n);
+        return connects(n, m, stones, m.left, m.right, frontier, next);
+    }
+
+    private static boolean connects(int n, Masks m, long[] stones, long[] start, long[] end,
+                                    long[] frontier, long[] next) {
+        int words = m.board.length;
+        boolean reached = false;
+        for (int w = 0; w < words; w++) {
+            frontier[w] = stones[w] & start[w];
+            reached |= (frontier[w] & end[w]) != 0;
+        }
+        while (!reached) {
+            boolean grew = false;
+            for (int w = 0; w < words; w++) {
+                long grown = dilate(n, m, frontier, w) & stones[w];
+                grew |= grown != frontier[w];
+                reached |= (grown & end[w]) != 0;
+                next[w] = grown;
+            }
+            if (!grew) {
+                return false;
+            }
+            long[] t = frontier; frontier = next; next = t;
+        }
+        return true;
+    }
+
+    /** Word {@code w} of {@code bits} plus all hex neighbours of its cells. */
+    private static long dilate(int n, Masks m, long[] bits, int w) {
+        long grown = bits[w]
+                | (up(bits, w, 1) & m.notFirstCol[w])          // (r, c+1)
+                | (down(bits, w, 1) & m.notLastCol[w])         // (r, c-1)
+                | up(bits, w, n)                               // (r+1, c)
+                | down(bits, w, n)                             // (r-1, c)
+                | (up(bits, w, n - 1) & m.notLastCol[w])       // (r+1, c-1)
+                | (down(bits, w, n - 1) & m.notFirstCol[w]);   // (r-1, c+1)
+        return grown & m.board[w];
+    }
+
+    /** Word {@code w} of {@code bits} moved towards higher cell indices by {@code k}. */
+    private static long up(long[] bits, int w, int k) {
+        int from = w - (k >>> 6);
+        int shift = k & 63;
+        long word = from >= 0 ? bits[from] : 0L;
+        if (shift == 0) return word;
+        long below = from >= 1 ? bits[from - 1] : 0L;
+        return (word << shift) | (below >>> (64 - shift));
+    }
+
+    /** Word {@code w} of {@code bits} moved towards lower cell indices by {@code k}. */
+    private static long down(long[] bits, int w, int k) {
+        int from = w + (k >>> 6);
+        int shift = k & 63;
+        long word = from < bits.length ? bits[from] : 0L;
+        if (shift == 0) return word;
+        long above = from + 1 < bits.length ? bits[from + 1] : 0L;
+        return (word >>> shift) | (above << (64 - shift));
+    }
+
+    private static Masks masks(int n) {
+        return MASKS.computeIfAbsent(n, Masks::new);
+    }
+
+    /** Edge and column masks for one board size. */
+    private static final class Masks {
+        final long[] board, notFirstCol, notLastCol, top, bottom, left, right;
+
+        Masks(int n) {
+            int words = words(n);
+            board = new long[words];
+            notFirstCol = new long[words];
+            notLastCol = new long[words];
+            top = new long[words];
+            bottom = new long[words];
+            left = new long[words];
+            right = new long[words];
+            for (int row = 0; row < n; row++) {
+                for (int column = 0; column < n; column++) {
+                    int index = row * n + column;
+                    int w = index >>> 6;
+                    long bit = 1L << index;
+                    board[w] |= bit;
+                    if (column != 0)     notFirstCol[w] |= bit;
+                    if (column != n - 1) notLastCol[w] |= bit;
+                    if (row == 0)        top[w] |= bit;
+                    if (row == n - 1)    bottom[w] |= bit;
+                    if (column == 0)     left[w] |= bit;
+                    if (column == n - 1) right[w] |= bit;
+                }
+            }
+        }
+    }
+}
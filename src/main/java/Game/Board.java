@@ -3,26 +3,95 @@ package Game;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class Board {
+    // Neighbour tables by board size, shared by all boards of that size
+    private static final ConcurrentHashMap<Integer, int[]> NEIGHBOURS = new ConcurrentHashMap<>();
+
+    // Cell codes of code(), toCells()/loadCells() and Player.id
+    private static final byte EMPTY = 0, RED = 1, BLACK = 2;
+    private static final Color[] COLORS = { Color.EMPTY, Color.RED, Color.BLACK };
+
     private final int n;
-    private final Color[] cells;
-    private final UnionFind uf;
+    // The arrays below may be shared with copies made by copyOnWrite(), see ensureOwned()
+    private UnionFind uf;
+    // The stones, one bit per cell: the only record of the position, also read by
+    // BitboardConnectivity
+    private long[] redBits, blackBits;
     private final int redTop, redBottom, blackLeft, blackRight;
+    // Six neighbour indices per cell, NO_NEIGHBOUR where the cell is on the edge
+    private final int[] neighbours;
+    private static final int NO_NEIGHBOUR = -1;
+    // Cells in the order stones were placed, with the union-find checkpoint taken before each
+    private int[] history;
+    private int[] checkpoints;
+    private int moveCount;
+    // True while the arrays may be shared with another board
+    private boolean shared;
 
     public Board(int n) {
         if (n <= 0) throw new IllegalArgumentException("The board can t have less than 1 row, 1 column");
         this.n = n;
-        this.cells = new Color[n * n];
-        Arrays.fill(cells, Color.EMPTY);
         int unionFindSize = n * n + 4; // Union-Find arrays: one node per cell + 4 virtual edges
-        this.uf = new UnionFind(unionFindSize);
+        this.uf = new UnionFind(unionFindSize, true); // undoable, see undoLastMove
+        this.redBits = new long[BitboardConnectivity.words(n)];
+        this.blackBits = new long[BitboardConnectivity.words(n)];
 
         //Indices for edge nodes
         redTop = n * n;
         redBottom = n * n + 1;
         blackLeft = n * n + 2;
         blackRight = n * n + 3;
+        this.neighbours = neighbours(n);
+        this.history = new int[n * n];
+        this.checkpoints = new int[n * n];
+    }
+
+    private Board(Board source, boolean share) {
+        this.n = source.n;
+        this.redTop = source.redTop;
+        this.redBottom = source.redBottom;
+        this.blackLeft = source.blackLeft;
+        this.blackRight = source.blackRight;
+        this.neighbours = source.neighbours;
+        this.moveCount = source.moveCount;
+        this.uf = source.uf;
+        this.redBits = source.redBits;
+        this.blackBits = source.blackBits;
+        this.history = source.history;
+        this.checkpoints = source.checkpoints;
+        this.shared = true;
+        if (!share) {
+            ensureOwned();
+        }
+    }
+
+    /* Copies */
+
+    // Independent copy of the position, connectivity and undo history
+    public Board copy() {
+        return new Board(this, false);
+    }
+
+    // Same as copy(), in O(1): the two boards share their arrays, and each board takes
+    // its own copy only when it is first changed
+    public Board copyOnWrite() {
+        shared = true;
+        return new Board(this, true);
+    }
+
+    // Takes private copies of the arrays before the first write after copyOnWrite()
+    private void ensureOwned() {
+        if (!shared) {
+            return;
+        }
+        uf = uf.snapshot();
+        redBits = redBits.clone();
+        blackBits = blackBits.clone();
+        history = history.clone();
+        checkpoints = checkpoints.clone();
+        shared = false;
     }
 
     /* Get methods */
@@ -33,15 +102,15 @@ public final class Board {
     }
     // Gets cell color
     public Color getCell(int row, int column) {
-        return cells[idx(row, column)];
+        return COLORS[code(idx(row, column))];
     }
     // Place red stone
     public void getMoveRed(int row, int column, Color _ignored) {
-        placeStone(row, column, Color.RED);
+        placeStone(row, column, RED);
     }
     // Place black stone
     public void getMoveBlack(int row, int column, Color _ignored) {
-        placeStone(row, column, Color.BLACK);
+        placeStone(row, column, BLACK);
     }
 
     /* Helpers for UI and future AI */
@@ -53,7 +122,7 @@ public final class Board {
 
     // Check if cell is empty
     public boolean isEmpty(int row, int column) {
-        return inBounds(row, column) && getCell(row, column) == Color.EMPTY;
+        return inBounds(row, column) && code(idx(row, column)) == EMPTY;
     }
 
     // Check for win-condition for RED (top ↔ bottom connected)
@@ -66,6 +135,16 @@ public final class Board {
         return uf.find(blackLeft) == uf.find(blackRight);
     }
 
+    // Same as redWins, by bitboard flood fill instead of the union-find
+    public boolean redWinsFloodFill() {
+        return BitboardConnectivity.connectsTopBottom(n, redBits);
+    }
+
+    // Same as blackWins, by bitboard flood fill instead of the union-find
+    public boolean blackWinsFloodFill() {
+        return BitboardConnectivity.connectsLeftRight(n, blackBits);
+    }
+
     // Check if game is over
     public boolean isTerminal() {
         return redWins() || blackWins();
@@ -86,36 +165,37 @@ public final class Board {
 
     /* Placing stones */
 
-    private void placeStone(int row, int column, Color stone) {
+    private void placeStone(int row, int column, byte stone) {
         if (!inBounds(row, column)) {
             throw new IndexOutOfBoundsException();
         }
 
         int cellIndex = idx(row, column);
-        if (cells[cellIndex] != Color.EMPTY) {
+        if (code(cellIndex) != EMPTY) {
             throw new IllegalStateException("Cell not empty");
         }
-        cells[cellIndex] = stone;
-        List<int[]> list_of_neighbors = neighbors(row, column);
+        ensureOwned();
+        checkpoints[moveCount] = uf.checkpoint();
+        history[moveCount++] = cellIndex;
+        long[] bits = stone == RED ? redBits : blackBits;
+        bits[cellIndex >>> 6] |= 1L << cellIndex;
         // Union with same-colored neighbors
-        for (var neighbor : list_of_neighbors) {
-            int neighborRow    = neighbor[0];
-            int neighborColumn = neighbor[1];
-            int neighborIndex  = idx(neighborRow, neighborColumn);
-            if (inBounds(neighborRow, neighborColumn) && cells[neighborIndex] == stone) {
+        for (int k = cellIndex * 6, end = k + 6; k < end; k++) {
+            int neighborIndex = neighbours[k];
+            if (neighborIndex != NO_NEIGHBOUR && (bits[neighborIndex >>> 6] & 1L << neighborIndex) != 0) {
                 uf.union(cellIndex, neighborIndex);
             }
         }
 
         // Union with virtual edge nodes (for win detection)
-        if (stone == Color.RED) {
+        if (stone == RED) {
             if (row == 0) {
                 uf.union(cellIndex, redTop);
             }
             if (row == n - 1) {
                 uf.union(cellIndex, redBottom);
             }
-        } else if (stone == Color.BLACK) {
+        } else if (stone == BLACK) {
             if (column == 0) {
                 uf.union(cellIndex, blackLeft);
             }
@@ -125,34 +205,118 @@ public final class Board {
         }
     }
 
-    /** Neighbor coordinates for a pointy-top hex grid laid out as an n×n rhombus. */
-    private List<int[]> neighbors(int row, int column) {
+    /**
+     * Neighbour indices for a pointy-top hex grid laid out as an n×n rhombus: six
+     * entries per cell, -1 for the ones off the board. One table per size, shared by
+     * every board and by the AI's connectivity code, so it must not be modified.
+     */
+    public static int[] neighbours(int n) {
+        return NEIGHBOURS.computeIfAbsent(n, Board::buildNeighbours);
+    }
+
+    private static int[] buildNeighbours(int n) {
         int[][] neighbor_deltas = { {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}};
-        List<int[]> neighbors = new ArrayList<>(6);
-        for (var delta : neighbor_deltas) {
-            int neighborRow = row + delta[0];
-            int neighborColumn = column + delta[1];
-            if (inBounds(neighborRow, neighborColumn)) {
-                neighbors.add(new int[]{neighborRow, neighborColumn});
+        int[] table = new int[n * n * 6];
+        for (int row = 0; row < n; row++) {
+            for (int column = 0; column < n; column++) {
+                int base = (row * n + column) * 6;
+                for (int k = 0; k < 6; k++) {
+                    int neighborRow = row + neighbor_deltas[k][0];
+                    int neighborColumn = column + neighbor_deltas[k][1];
+                    boolean in = neighborRow >= 0 && neighborColumn >= 0 && neighborRow < n && neighborColumn < n;
+                    table[base + k] = in ? neighborRow * n + neighborColumn : NO_NEIGHBOUR;
+                }
             }
         }
-        return neighbors;
+        return table;
     }
 
-    // Flatten (row, column) → linear index for the 1D cells array
+    // Flatten (row, column) → linear cell index (bitboards, neighbour table, union-find)
     private int idx(int row, int column) {
         return row * n + column;
     }
 
+    // EMPTY, RED or BLACK for a linear cell index, read from the bitboards
+    private byte code(int cellIndex) {
+        long bit = 1L << cellIndex;
+        if ((redBits[cellIndex >>> 6] & bit) != 0) {
+            return RED;
+        }
+        return (blackBits[cellIndex >>> 6] & bit) != 0 ? BLACK : EMPTY;
+    }
+
+    // Takes back the last stone placed, connectivity included; false if the board is empty
+    public boolean undoLastMove() {
+        if (moveCount == 0) {
+            return false;
+        }
+        ensureOwned();
+        int cellIndex = history[--moveCount];
+        redBits[cellIndex >>> 6] &= ~(1L << cellIndex);
+        blackBits[cellIndex >>> 6] &= ~(1L << cellIndex);
+        uf.undoTo(checkpoints[moveCount]);
+        return true;
+    }
+
     //Helper for undoing move (removes stone from a cell)
+    // The last stone is rolled back directly. For an older stone, the stones placed after
+    // it are rolled back and placed again, so the union-find never keeps stale unions.
     public void clearCell(int row, int column) {
-        if (inBounds(row, column)) {
-            cells[idx(row, column)] = Color.EMPTY;
+        if (!inBounds(row, column) || code(idx(row, column)) == EMPTY) {
+            return;
+        }
+        int cellIndex = idx(row, column);
+        int position = moveCount - 1;
+        while (history[position] != cellIndex) {
+            position--;
+        }
+        int later = moveCount - 1 - position;
+        int[] replayCells = new int[later];
+        byte[] replayColors = new byte[later];
+        for (int i = 0; i < later; i++) {
+            replayCells[i] = history[position + 1 + i];
+            replayColors[i] = code(replayCells[i]);
+        }
+        while (moveCount > position) {
+            undoLastMove();
+        }
+        for (int i = 0; i < later; i++) {
+            placeStone(replayCells[i] / n, replayCells[i] % n, replayColors[i]);
+        }
+    }
+
+    /* Bulk export and import */
+
+    // One int per cell in row-major order: 0 = empty, 1 = red, 2 = black
+    public int[] toCells() {
+        int[] out = new int[n * n];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = code(i);
+        }
+        return out;
+    }
+
+    // Replaces the position with the one in toCells() format; the stones are placed in
+    // row-major order, which becomes the undo order
+    public void loadCells(int[] in) {
+        if (in.length != n * n) {
+            throw new IllegalArgumentException("Expected " + (n * n) + " cells, got " + in.length);
+        }
+        reset();
+        for (int i = 0; i < in.length; i++) {
+            if (in[i] == RED || in[i] == BLACK) {
+                placeStone(i / n, i % n, (byte) in[i]);
+            } else if (in[i] != EMPTY) {
+                throw new IllegalArgumentException("Cell code must be 0, 1 or 2: " + in[i]);
+            }
         }
     }
 
     public void reset() {
-        Arrays.fill(cells, Color.EMPTY); // clear stones
+        ensureOwned();
+        Arrays.fill(redBits, 0L);        // clear stones
+        Arrays.fill(blackBits, 0L);
+        moveCount = 0;
         uf.reset();                      // clear connectivity
     }
 }
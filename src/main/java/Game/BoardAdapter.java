@@ -1,45 +1,23 @@
 package Game;
 
+import java.util.Arrays;
+
 public class BoardAdapter {
     private final Board board;
-    private final int[][] matrix;
 
     public BoardAdapter(Board board) {
         this.board = board;
-        this.matrix = new int[board.getSize()][board.getSize()];
-        updateMatrix();
     }
 
-
-
-    //Updates the 2D matrix  based on the current state of the board
-    public void updateMatrix() {
-        int n = board.getSize();
-        for (int row = 0; row < n; row++) {
-            for (int col = 0; col < n; col++) {
-                Color cellColor = board.getCell(row, col);
-                matrix[row][col] = colorToInt(cellColor);
-            }
-        }
-    }
-
-    //Updates the board within the changes in the matrix
-    public void updateBoard() {
-        board.reset();
+    //Builds a 2D matrix of the board: 0 = empty, 1 = red, 2 = black
+    //The board is the only copy of the position, so the matrix is a fresh snapshot
+    public int[][] getMatrix() {
         int n = board.getSize();
+        int[] cells = board.toCells();
+        int[][] matrix = new int[n][];
         for (int row = 0; row < n; row++) {
-            for (int col = 0; col < n; col++) {
-                int v = matrix[row][col];
-                if (v == 1) {
-                    board.getMoveRed(row, col, Color.RED);
-                } else if (v == 2) {
-                    board.getMoveBlack(row, col, Color.BLACK);
-                }
-            }
+            matrix[row] = Arrays.copyOfRange(cells, row * n, (row + 1) * n);
         }
-    }
-
-    public int[][] getMatrix() {
         return matrix;
     }
 
@@ -47,38 +25,11 @@ public class BoardAdapter {
         return board;
     }
 
-
-     //Converts Color enum to integer representation for matrix
-     //Where 0 = empty, 1 = red, 2 = blsck
-
-    private int colorToInt(Color color) {
-        switch (color) {
-            case RED: return 1;
-            case BLACK: return 2;
-            case EMPTY:
-            default: return 0;
-        }
-    }
-
-
-    private Color intToColor(int value) {
-        switch (value) {
-            case 1: return Color.RED;
-            case 2: return Color.BLACK;
-            case 0:
-            default: return Color.EMPTY;
-        }
-    }
-
     public boolean makeMove(int row, int col, Player player) {
         if (!Rules.validMove(board, row, col)) {
             return false;
         }
 
-        // Update matrix
-        matrix[row][col] = player.id;
-
-        // Update board
         if (player == Player.RED) {
             board.getMoveRed(row, col, Color.RED);
         } else {
@@ -90,8 +41,7 @@ public class BoardAdapter {
 
 
     public void undoMove(int row, int col) {
-        matrix[row][col] = 0;
-        updateBoard();
+        board.clearCell(row, col); // rolls back the union-find, no replay of the whole board
     }
 
 
@@ -109,14 +59,7 @@ public class BoardAdapter {
         return null;
     }
 
-     //Resets both the matrix and the board
     public void reset() {
-        int n = board.getSize();
-        for (int row = 0; row < n; row++) {
-            for (int col = 0; col < n; col++) {
-                matrix[row][col] = 0;
-            }
-        }
         board.reset();
     }
 
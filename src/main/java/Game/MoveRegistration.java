@@ -75,11 +75,12 @@ private int currentPlayer = 1; // Variable to know who is playing. 1 is red, 2 i
         }
 
         String lastMove = moves.remove(moves.size() - 1);
-        String[] parts = lastMove.replaceAll("[^0-9,]", "").split(",");
+        // only the "(row,col)" part: the player number in front is digits too
+        String[] parts = lastMove.substring(lastMove.indexOf('(')).replaceAll("[^0-9,]", "").split(",");
         int row = Integer.parseInt(parts[0]);
         int col = Integer.parseInt(parts[1]);
 
-        //clear the cell
+        //clear the cell; Board rolls back its connectivity as well
         board.clearCell(row, col);
 
         //switch back to player who has undone the move
@@ -5,14 +5,24 @@ import java.util.Arrays;
 /**
  * A Union-Find (Disjoint Set Union) data structure implementation.
  * This class efficiently manages a collection of disjoint sets and supports
- * union and find operations with path compression and union by rank optimizations.
- * 
+ * union and find operations with path halving and union by size optimizations.
+ *
  * <p>This implementation is commonly used for connectivity problems, such as
  * determining whether stones on a game board are connected.
- * 
+ *
+ * <p>Everything lives in one {@code int[]}: a non-negative entry is the parent of
+ * that element, a negative entry marks a root and holds minus the size of its set.
+ * A lookup therefore touches a single array, and a copy is one {@code System.arraycopy}
+ * (see {@link #copyFrom(UnionFind)} and {@link #snapshot()}).
+ *
+ * <p>An <em>undoable</em> instance skips path halving and records every union in
+ * a change log, so that {@link #undoTo(int)} can take unions back in reverse order.
+ * Union by size alone keeps the trees O(log n) deep.
+ *
  * <p>Time Complexity:
  * <ul>
- *   <li>Find: O(α(n)) amortized, where α is the inverse Ackermann function</li>
+ *   <li>Find: O(α(n)) amortized, where α is the inverse Ackermann function
+ *       (O(log n) when undoable)</li>
  *   <li>Union: O(α(n)) amortized</li>
  *   <li>Connected: O(α(n)) amortized</li>
  * </ul>
@@ -20,56 +30,109 @@ import java.util.Arrays;
 
 public class UnionFind {
     /**
-     * Array where parent[i] represents the parent of element i.
-     * If parent[i] == i, then i is a root of its set.
+     * Array where parent[i] is the parent of element i, or minus the size of the set
+     * if i is a root.
      */
-    private int[] parent;
-    
+    private final int[] parent;
+
     /**
-     * Array where rank[i] represents an upper bound on the height of the tree
-     * rooted at i. Used for union by rank optimization.
+     * Unions made so far, oldest first, when undoable: pairs of (element that stopped
+     * being a root, its entry before the union). {@code null} for instances that
+     * halve paths.
      */
-    private int[] rank;
+    private int[] log;
+    private int logSize;
 
     /**
      * Constructs a Union-Find data structure with the specified number of elements.
      * Initially, each element is in its own set.
-     * 
+     *
      * @param size the total number of elements (typically positions on a game board)
      * @throws NegativeArraySizeException if size is negative
      */
     public UnionFind(int size) {
-        parent = new int[size];
-        rank = new int[size];
-        // Initially, every node is its own parent, and ranks are zero.
-        for (int i = 0; i < size; i++) {
-            parent[i] = i;
-            rank[i] = 0;
+        this(size, false);
+    }
+
+    /**
+     * Constructs a Union-Find data structure that can optionally roll back unions.
+     *
+     * @param size     the total number of elements
+     * @param undoable whether to keep a change log for {@link #checkpoint()}/{@link #undoTo(int)}
+     */
+    public UnionFind(int size, boolean undoable) {
+        if (undoable) {
+            log = new int[16]; // grows by doubling in record()
         }
+        parent = new int[size];
+        // Initially, every node is a root of a set of size one.
+        Arrays.fill(parent, -1);
     }
 
     /**
      * Finds the root representative of the set containing the specified element.
-     * Uses path compression to flatten the tree structure, improving performance
-     * of future operations.
-     * 
+     * Uses path halving (every visited node is pointed at its grandparent), which
+     * flattens the tree without recursion.
+     *
      * @param x the element whose set representative is to be found
      * @return the root representative of the set containing x
      */
     public int find(int x) {
-        if (parent[x] != x) {
-            parent[x] = find(parent[x]); // Recursively find the root and compress the path
+        if (log != null) {
+            // no path halving, so the log is the only record of changes
+            while (parent[x] >= 0) {
+                x = parent[x];
+            }
+            return x;
+        }
+        return find(parent, x);
+    }
+
+    /**
+     * {@link #find(int)} with path halving on a bare array in this class's layout,
+     * for callers that keep their own arrays (such as the AI's search states).
+     *
+     * @param parent parent entries, negative sizes at the roots
+     * @param x      the element whose set representative is to be found
+     * @return the root representative of the set containing x
+     */
+    public static int find(int[] parent, int x) {
+        while (parent[x] >= 0) {
+            int p = parent[x];
+            if (parent[p] >= 0) {
+                parent[x] = parent[p];
+            }
+            x = parent[x];
+        }
+        return x;
+    }
+
+    /**
+     * {@link #union(int, int)} by size on a bare array in this class's layout, with
+     * path halving and without a change log.
+     *
+     * @param parent parent entries, negative sizes at the roots
+     * @param a      the first element
+     * @param b      the second element
+     */
+    public static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA == rootB) return;
+        if (parent[rootA] > parent[rootB]) {
+            int t = rootA; rootA = rootB; rootB = t;
         }
-        return parent[x];
+        parent[rootA] += parent[rootB];
+        parent[rootB] = rootA;
     }
 
     /**
      * Merges the sets containing the two specified elements.
-     * Uses union by rank to keep the tree shallow by attaching the shorter
-     * tree under the root of the taller tree.
-     * 
+     * Uses union by size to keep the tree shallow by attaching the smaller
+     * tree under the root of the larger tree.
+     *
      * <p>If the elements are already in the same set, no action is taken.
-     * 
+     *
      * @param a the first element
      * @param b the second element
      */
@@ -78,20 +141,55 @@ public class UnionFind {
         int rootB = find(b);
         if (rootA == rootB) return; // They are already in the same set
 
-        // Union by rank: attach the smaller tree under the larger tree
-        if (rank[rootA] < rank[rootB]) {
-            parent[rootA] = rootB;
-        } else if (rank[rootA] > rank[rootB]) {
-            parent[rootB] = rootA;
-        } else {
-            parent[rootB] = rootA;
-            rank[rootA]++;
+        // Union by size: attach the smaller tree under the larger tree (sizes are negative)
+        if (parent[rootA] > parent[rootB]) {
+            int t = rootA; rootA = rootB; rootB = t;
+        }
+        record(rootB);
+        parent[rootA] += parent[rootB];
+        parent[rootB] = rootA;
+    }
+
+    private void record(int child) {
+        if (log == null) return;
+        if (logSize == log.length) {
+            log = Arrays.copyOf(log, logSize * 2);
+        }
+        log[logSize++] = child;
+        log[logSize++] = parent[child];
+    }
+
+    /**
+     * Marks the current state so it can be restored with {@link #undoTo(int)}.
+     * Only for undoable instances.
+     *
+     * @return a mark to pass to {@link #undoTo(int)}
+     */
+    public int checkpoint() {
+        if (log == null) throw new IllegalStateException("UnionFind is not undoable");
+        return logSize;
+    }
+
+    /**
+     * Takes back every union made since {@code checkpoint} was taken, newest first.
+     * Costs O(1) per union undone.
+     *
+     * @param checkpoint a value returned by {@link #checkpoint()}
+     */
+    public void undoTo(int checkpoint) {
+        if (log == null) throw new IllegalStateException("UnionFind is not undoable");
+        while (logSize > checkpoint) {
+            int entry = log[--logSize];
+            int child = log[--logSize];
+            int root = parent[child];
+            parent[root] -= entry;
+            parent[child] = entry;
         }
     }
 
     /**
      * Determines whether two elements are in the same set.
-     * 
+     *
      * @param a the first element
      * @param b the second element
      * @return {@code true} if a and b are in the same set, {@code false} otherwise
@@ -100,11 +198,40 @@ public class UnionFind {
         return find(a) == find(b);
     }
 
-    public void reset() {
-        Arrays.fill(rank, 0);
-        for (int i = 0; i < parent.length; i++) {
-            parent[i] = i;
+    /**
+     * Makes this instance hold the same sets as {@code other} (and, if both are
+     * undoable, the same change log) with bulk array copies.
+     *
+     * @param other a Union-Find of the same size
+     * @throws IllegalArgumentException if the sizes differ
+     */
+    public void copyFrom(UnionFind other) {
+        if (other.parent.length != parent.length) {
+            throw new IllegalArgumentException("UnionFind sizes differ");
+        }
+        System.arraycopy(other.parent, 0, parent, 0, parent.length);
+        if (log != null) {
+            if (other.log == null) {
+                logSize = 0; // nothing to roll back to
+            } else {
+                if (log.length < other.logSize) {
+                    log = new int[other.log.length];
+                }
+                System.arraycopy(other.log, 0, log, 0, other.logSize);
+                logSize = other.logSize;
+            }
         }
     }
-}
 
+    /** An independent copy of this instance, undoable if this one is. */
+    public UnionFind snapshot() {
+        UnionFind copy = new UnionFind(parent.length, log != null);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    public void reset() {
+        logSize = 0;
+        Arrays.fill(parent, -1);
+    }
+}
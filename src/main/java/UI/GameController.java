@@ -111,25 +111,18 @@ public class GameController {
     private void playMctsMove() {
         int n = adapter.getBoard().getSize();
 
-        // build canonical cells: +1 = current (AI) player, -1 = opponent
+        // +1 = current (AI) player, -1 = opponent
         boolean plusIsRed = (getCurrentPlayer() == Player.RED);
-        int[] cells = new int[n * n];
-        for (int r = 0; r < n; r++) {
-            for (int c = 0; c < n; c++) {
-                Game.Color cc = adapter.getCellColor(r, c);
-                int idx = r * n + c;
-                if (cc == Game.Color.EMPTY) cells[idx] = 0;
-                else if (cc == Game.Color.RED)  cells[idx] = plusIsRed ? +1 : -1;
-                else /* BLACK */                cells[idx] = plusIsRed ? -1 : +1;
-            }
-        }
 
         AI.hex.HexMctsAdapter game = new AI.hex.HexMctsAdapter(n);
-        AI.mcts.MctsArgs args = new AI.mcts.MctsArgs(1.4, 400); // tune searches for UI speed
-        AI.hex.HexState root = new AI.hex.HexState(n, cells, plusIsRed);
+        // bounded by wall-clock time rather than a fixed search count, so large boards stay responsive
+        AI.mcts.MctsArgs args = new AI.mcts.MctsArgs(1.4, Integer.MAX_VALUE).withTimeLimit(1000);
+        AI.hex.HexState root = AI.hex.HexState.fromBoard(adapter.getBoard(), plusIsRed);
 
-        AI.mcts.MCTS<AI.hex.HexState> mcts = new AI.mcts.MCTS<>(game, args);
-        double[] policy = mcts.search(root);
+        double[] policy;
+        try (AI.mcts.MCTS<AI.hex.HexState> mcts = new AI.mcts.MCTS<>(game, args)) {
+            policy = mcts.search(root);
+        }
 
         int best = 0;
         for (int a = 1; a < policy.length; a++) if (policy[a] > policy[best]) best = a;
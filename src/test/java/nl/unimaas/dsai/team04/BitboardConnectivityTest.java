@@ -0,0 +1,95 @@
+package nl.unimaas.dsai.team04;
+
+import java.util.Random;
+
+import Game.BitboardConnectivity;
+import Game.Board;
+import Game.Color;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Checks the bitboard flood fill of {@link BitboardConnectivity} against the
+ * union-find win detection of {@link Board}.
+ */
+public class BitboardConnectivityTest
+    extends TestCase
+{
+    private static final int GAMES_PER_SIZE = 20;
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public BitboardConnectivityTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( BitboardConnectivityTest.class );
+    }
+
+    /**
+     * Fills boards of size 1 to 20 in random order and compares both win checks after
+     * every stone, with and without caller-supplied scratch arrays.
+     */
+    public void testFloodFillMatchesUnionFind()
+    {
+        Random random = new Random( 12 );
+        for ( int n = 1; n <= 20; n++ )
+        {
+            int words = BitboardConnectivity.words( n );
+            long[] frontier = new long[words];
+            long[] next = new long[words];
+            for ( int g = 0; g < GAMES_PER_SIZE; g++ )
+            {
+                Board board = new Board( n );
+                long[] red = new long[words];
+                long[] black = new long[words];
+                int[] order = shuffledCells( n * n, random );
+                for ( int i = 0; i < order.length; i++ )
+                {
+                    int cell = order[i];
+                    if ( i % 2 == 0 )
+                    {
+                        board.getMoveRed( cell / n, cell % n, Color.RED );
+                        red[cell >>> 6] |= 1L << cell;
+                    }
+                    else
+                    {
+                        board.getMoveBlack( cell / n, cell % n, Color.BLACK );
+                        black[cell >>> 6] |= 1L << cell;
+                    }
+                    assertEquals( board.redWins(), BitboardConnectivity.connectsTopBottom( n, red ) );
+                    assertEquals( board.blackWins(), BitboardConnectivity.connectsLeftRight( n, black ) );
+                    assertEquals( board.redWins(), BitboardConnectivity.connectsTopBottom( n, red, frontier, next ) );
+                    assertEquals( board.blackWins(), BitboardConnectivity.connectsLeftRight( n, black, frontier, next ) );
+                }
+            }
+        }
+    }
+
+    private static int[] shuffledCells( int cells, Random random )
+    {
+        int[] order = new int[cells];
+        for ( int i = 0; i < cells; i++ )
+        {
+            order[i] = i;
+        }
+        for ( int i = cells - 1; i > 0; i-- )
+        {
+            int k = random.nextInt( i + 1 );
+            int t = order[i];
+            order[i] = order[k];
+            order[k] = t;
+        }
+        return order;
+    }
+}
@@ -0,0 +1,152 @@
+package nl.unimaas.dsai.team04;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import Game.Board;
+import Game.Color;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Checks that taking stones back with {@link Board#clearCell} and
+ * {@link Board#undoLastMove} leaves the same board as replaying the remaining
+ * stones on an empty one.
+ */
+public class BoardUndoTest
+    extends TestCase
+{
+    private static final int BOARDS = 300;
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public BoardUndoTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( BoardUndoTest.class );
+    }
+
+    /**
+     * Removes an arbitrary stone, not only the last one, and compares with a replay.
+     */
+    public void testClearCellMatchesReplay()
+    {
+        Random random = new Random( 42 );
+        for ( int b = 0; b < BOARDS; b++ )
+        {
+            int n = 1 + random.nextInt( 11 );
+            Board board = new Board( n );
+            List<int[]> moves = placeRandomStones( board, random, random.nextInt( n * n + 1 ) );
+            if ( moves.isEmpty() )
+            {
+                continue;
+            }
+            int[] removed = moves.remove( random.nextInt( moves.size() ) );
+            board.clearCell( removed[0], removed[1] );
+
+            assertSameBoard( replay( n, moves ), board );
+            assertEquals( Color.EMPTY, board.getCell( removed[0], removed[1] ) );
+        }
+    }
+
+    /**
+     * Undoes every stone in turn, comparing with a replay of the stones left.
+     */
+    public void testUndoLastMoveMatchesReplay()
+    {
+        Random random = new Random( 7 );
+        for ( int b = 0; b < BOARDS / 10; b++ )
+        {
+            int n = 1 + random.nextInt( 11 );
+            Board board = new Board( n );
+            List<int[]> moves = placeRandomStones( board, random, random.nextInt( n * n + 1 ) );
+            while ( !moves.isEmpty() )
+            {
+                moves.remove( moves.size() - 1 );
+                assertTrue( board.undoLastMove() );
+                assertSameBoard( replay( n, moves ), board );
+            }
+            assertFalse( board.undoLastMove() );
+        }
+    }
+
+    /**
+     * A copy-on-write copy and its source change independently.
+     */
+    public void testCopyOnWriteIsIndependent()
+    {
+        Random random = new Random( 3 );
+        Board board = new Board( 7 );
+        List<int[]> moves = placeRandomStones( board, random, 20 );
+        Board copy = board.copyOnWrite();
+
+        placeRandomStones( copy, random, 10 );
+        int[] removed = moves.get( 5 );
+        copy.clearCell( removed[0], removed[1] );
+        assertSameBoard( replay( 7, moves ), board );
+
+        board.undoLastMove();
+        moves.remove( moves.size() - 1 );
+        assertSameBoard( replay( 7, moves ), board );
+        assertFalse( Arrays.equals( board.toCells(), copy.toCells() ) );
+    }
+
+    /** Places {@code count} stones of alternating colours on random empty cells. */
+    private static List<int[]> placeRandomStones( Board board, Random random, int count )
+    {
+        List<int[]> empty = board.legalMoves();
+        List<int[]> moves = new ArrayList<>();
+        for ( int i = 0; i < count && !empty.isEmpty(); i++ )
+        {
+            int[] cell = empty.remove( random.nextInt( empty.size() ) );
+            Color color = i % 2 == 0 ? Color.RED : Color.BLACK;
+            play( board, cell, color );
+            moves.add( new int[] { cell[0], cell[1], color == Color.RED ? 1 : 2 } );
+        }
+        return moves;
+    }
+
+    private static Board replay( int n, List<int[]> moves )
+    {
+        Board board = new Board( n );
+        for ( int[] move : moves )
+        {
+            play( board, move, move[2] == 1 ? Color.RED : Color.BLACK );
+        }
+        return board;
+    }
+
+    private static void play( Board board, int[] cell, Color color )
+    {
+        if ( color == Color.RED )
+        {
+            board.getMoveRed( cell[0], cell[1], color );
+        }
+        else
+        {
+            board.getMoveBlack( cell[0], cell[1], color );
+        }
+    }
+
+    private static void assertSameBoard( Board expected, Board actual )
+    {
+        assertTrue( Arrays.equals( expected.toCells(), actual.toCells() ) );
+        assertEquals( expected.redWins(), actual.redWins() );
+        assertEquals( expected.blackWins(), actual.blackWins() );
+        assertEquals( actual.redWinsFloodFill(), actual.redWins() );
+        assertEquals( actual.blackWinsFloodFill(), actual.blackWins() );
+    }
+}
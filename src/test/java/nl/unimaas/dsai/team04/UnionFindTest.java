@@ -0,0 +1,113 @@
+package nl.unimaas.dsai.team04;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import Game.UnionFind;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Checks the array-level {@link UnionFind#find(int[], int)} and
+ * {@link UnionFind#union(int[], int, int)}, which halve paths, against an undoable
+ * instance, which does not.
+ */
+public class UnionFindTest
+    extends TestCase
+{
+    private static final int RUNS = 200;
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public UnionFindTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( UnionFindTest.class );
+    }
+
+    /**
+     * Random unions give the same sets, and the same set sizes at the roots.
+     */
+    public void testArrayOperationsMatchUndoableInstance()
+    {
+        Random random = new Random( 11 );
+        for ( int run = 0; run < RUNS; run++ )
+        {
+            int size = 1 + random.nextInt( 150 );
+            int[] parent = new int[size];
+            Arrays.fill( parent, -1 );
+            UnionFind reference = new UnionFind( size, true );
+            int unions = random.nextInt( 2 * size );
+            for ( int i = 0; i < unions; i++ )
+            {
+                int a = random.nextInt( size );
+                int b = random.nextInt( size );
+                UnionFind.union( parent, a, b );
+                reference.union( a, b );
+                int x = random.nextInt( size );
+                int y = random.nextInt( size );
+                assertEquals( reference.connected( x, y ), UnionFind.find( parent, x ) == UnionFind.find( parent, y ) );
+            }
+            assertSamePartition( parent, reference );
+        }
+    }
+
+    /**
+     * The instance find halves paths through the array operation when not undoable.
+     */
+    public void testPathHalvingInstanceMatchesUndoableInstance()
+    {
+        Random random = new Random( 5 );
+        for ( int run = 0; run < RUNS; run++ )
+        {
+            int size = 1 + random.nextInt( 150 );
+            UnionFind halving = new UnionFind( size );
+            UnionFind reference = new UnionFind( size, true );
+            for ( int i = 0; i < size; i++ )
+            {
+                int a = random.nextInt( size );
+                int b = random.nextInt( size );
+                halving.union( a, b );
+                reference.union( a, b );
+            }
+            for ( int x = 0; x < size; x++ )
+            {
+                int y = random.nextInt( size );
+                assertEquals( reference.connected( x, y ), halving.connected( x, y ) );
+            }
+        }
+    }
+
+    /** Same sets as {@code reference}, and each root of {@code parent} holds minus its set's size. */
+    private static void assertSamePartition( int[] parent, UnionFind reference )
+    {
+        int size = parent.length;
+        int[] members = new int[size];
+        for ( int x = 0; x < size; x++ )
+        {
+            members[UnionFind.find( parent, x )]++;
+            for ( int y = x + 1; y < size; y++ )
+            {
+                assertEquals( reference.connected( x, y ), UnionFind.find( parent, x ) == UnionFind.find( parent, y ) );
+            }
+        }
+        for ( int x = 0; x < size; x++ )
+        {
+            if ( parent[x] < 0 )
+            {
+                assertEquals( members[x], -parent[x] );
+            }
+        }
+    }
+}